@@ -40,7 +40,7 @@ public class AfkCommand implements CommandExecutor {
         }
 
         // Check if AFK is enabled
-        if (!plugin.getConfig().getBoolean("earning.afk.enabled", true)) {
+        if (!plugin.getSettings().isAfkEnabled()) {
             messages.sendAfkDisabled(player);
             return true;
         }
@@ -31,19 +31,27 @@ public class AfkListener implements Listener {
     }
 
     /**
-     * Handle player join - remove AFK status if exists
+     * Handle player join - remove AFK status if exists and send the player back from an AFK
+     * session that was cut short. The stored status and return location were read during
+     * pre-login, so nothing here touches the database synchronously.
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
         // Schedule after login plugins process
-        scheduler.runGlobalDelayed(() -> {
-            if (afkManager.isAfk(player)) {
+        scheduler.runAtEntityDelayed(player, () -> {
+            boolean stale = afkManager.consumeStaleAfkStatus(player.getUniqueId());
+            boolean interrupted = afkManager.isAfk(player) || stale;
+            if (interrupted) {
                 afkManager.removeAfkData(player);
+            }
+            // A return location is left over if the player disconnected or the server crashed
+            // while they were AFK
+            if (afkManager.returnFromInterruptedAfk(player) || interrupted) {
                 messages.send(player, "afk.auto-stopped");
             }
-        }, 20L); // 1 second delay
+        }, null, 20L); // 1 second delay
     }
 
     /**
@@ -56,6 +64,7 @@ public class AfkListener implements Listener {
         if (afkManager.isAfk(player) || afkManager.isPendingAfk(player)) {
             afkManager.removeAfkData(player);
         }
+        afkManager.discardPreloaded(player.getUniqueId());
     }
 
     /**
@@ -79,8 +88,8 @@ public class AfkListener implements Listener {
 
         boolean wasInRegion = worldGuard.isInAfkRegion(player);
 
-        // Small delay to check new location
-        scheduler.runGlobalDelayed(() -> {
+        // Small delay to check new location, on the player's region thread
+        scheduler.runAtEntityDelayed(player, () -> {
             if (!player.isOnline()) return;
 
             boolean isInRegion = worldGuard.isInAfkRegion(player);
@@ -91,11 +100,11 @@ public class AfkListener implements Listener {
 
                 // Auto-start if enabled
                 if (worldGuard.isAutoStartEnabled() && !afkManager.isAfk(player)) {
-                    scheduler.runGlobalDelayed(() -> {
+                    scheduler.runAtEntityDelayed(player, () -> {
                         if (player.isOnline() && worldGuard.isInAfkRegion(player)) {
                             afkManager.startAfkProcess(player);
                         }
-                    }, 40L); // 2 second delay
+                    }, null, 40L); // 2 second delay
                 }
             }
 
@@ -108,7 +117,7 @@ public class AfkListener implements Listener {
                     afkManager.quitAfk(player);
                 }
             }
-        }, 5L); // 250ms delay
+        }, null, 5L); // 250ms delay
     }
 
     /**
@@ -2,7 +2,10 @@ package com.xshards;
 
 import com.xshards.Xshards;
 import com.xshards.ProxyManager;
+import com.xshards.api.ShardBalanceChangeEvent;
 import com.xshards.scheduler.SchedulerAdapter;
+import com.xshards.storage.AfkZoneRecord;
+import com.xshards.storage.LocationRecord;
 import com.xshards.utils.MessageManager;
 import com.xshards.WorldGuardManager;
 import org.bukkit.Location;
@@ -10,17 +13,19 @@ import org.bukkit.Sound;
 import org.bukkit.World;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
-import org.bukkit.boss.BossBar;
 import org.bukkit.entity.Player;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Manages AFK system with WorldGuard integration, Folia support, and Cross-Server
@@ -33,8 +38,12 @@ public class AfkManager {
     private final WorldGuardManager worldGuard;
     private final ProxyManager proxyManager;
 
-    // AFK location (legacy mode)
-    private Location afkLocation;
+    // Storage lanes for shared rows
+    static final String LOCATION_KEY = "afk_location";
+    static final String STATUS_KEY = "afk_status";
+
+    // Teleport targets and who is in each (legacy mode)
+    private final AfkZones zones;
 
     // Active AFK players
     private final Map<UUID, AfkSession> activeSessions;
@@ -42,8 +51,26 @@ public class AfkManager {
     // Pending teleports (countdown active)
     private final Map<UUID, PendingTeleport> pendingTeleports;
 
-    // Boss bars for countdowns
-    private final Map<UUID, BossBar> countdownBars;
+    // Countdowns before entering AFK, sharing boss bars between players
+    private final CountdownEngine countdowns;
+
+    // Return locations read during pre-login or written when AFK starts
+    private final Map<UUID, Location> savedLocations;
+
+    // Players whose stored AFK status was still set when they logged in
+    private final Set<UUID> staleAfkStatus;
+
+    // Seconds toward the next reward carried over from an interrupted session, read during
+    // pre-login and used up when the next session starts
+    private final Map<UUID, Integer> carriedSeconds;
+
+    // One ticker pays out every AFK session; it only runs while someone is AFK
+    private final Object rewardTickerLock = new Object();
+    private ScheduledTask rewardTicker;
+    private final AtomicInteger liveRewardTasks = new AtomicInteger();
+
+    // Seconds since accrued time was last checkpointed, only touched by the reward ticker
+    private int secondsSinceCheckpoint;
 
     public AfkManager(Xshards plugin, SchedulerAdapter scheduler, MessageManager messages,
                       WorldGuardManager worldGuard, ProxyManager proxyManager) {
@@ -54,67 +81,179 @@ public class AfkManager {
         this.proxyManager = proxyManager;
         this.activeSessions = new ConcurrentHashMap<>();
         this.pendingTeleports = new ConcurrentHashMap<>();
-        this.countdownBars = new ConcurrentHashMap<>();
-
-        loadAfkLocation();
-        loadActiveSessions();
+        this.zones = new AfkZones();
+        this.countdowns = new CountdownEngine(plugin.getServer(), scheduler,
+                seconds -> "§6AFK'ye §e" + seconds + " §6saniye...", BarColor.YELLOW, BarStyle.SOLID);
+        this.savedLocations = new ConcurrentHashMap<>();
+        this.staleAfkStatus = ConcurrentHashMap.newKeySet();
+        this.carriedSeconds = new ConcurrentHashMap<>();
+
+        loadZones();
+        recoverSessions();
     }
 
     /**
-     * Load AFK location from database
+     * Load AFK zones from database on the storage executor
      */
-    private void loadAfkLocation() {
-        try (Connection conn = plugin.getDatabaseManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT world, x, y, z FROM afk_location WHERE id = 1")) {
+    private void loadZones() {
+        plugin.getDatabaseManager().read(LOCATION_KEY, session -> session.afkLocations().findZones())
+                .whenComplete((stored, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Failed to load AFK zones: " + error.getMessage());
+                        return;
+                    }
+
+                    for (AfkZoneRecord zone : stored) {
+                        Location location = zone.getLocation().toLocation(plugin.getServer());
+                        if (location == null) {
+                            plugin.getLogger().warning("Skipping AFK zone " + zone.getName() + ": world "
+                                    + zone.getLocation().getWorld() + " is not loaded");
+                            continue;
+                        }
+                        zones.put(zone.getName(), location, zone.getCapacity());
+                    }
+                    plugin.getLogger().info("Loaded " + zones.size() + " AFK zones");
+
+                    // Sessions recovered before the zones were loaded
+                    assignResumedSessions();
+                });
+    }
 
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String worldName = rs.getString("world");
-                World world = plugin.getServer().getWorld(worldName);
+    /**
+     * Recover sessions left marked as AFK by a crash or restart, on the storage executor.
+     * Players who are online again resume where their last checkpoint left off. Every other
+     * session is settled in one pass: the shards earned by its accrued seconds are paid pro
+     * rata and the remainder is kept as carry-over for the player's next session. Closing the
+     * rows and crediting the shards happen in one transaction, so a failure loses neither.
+     */
+    private void recoverSessions() {
+        Set<UUID> online = new HashSet<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+        }
 
-                if (world != null) {
-                    double x = rs.getDouble("x");
-                    double y = rs.getDouble("y");
-                    double z = rs.getDouble("z");
-                    afkLocation = new Location(world, x, y, z);
-                    plugin.getLogger().info("Loaded AFK location: " + worldName);
+        Settings settings = plugin.getSettings();
+        ShardManager shardManager = plugin.getShardManager();
+        AtomicReference<Map<UUID, Long>> resumed = new AtomicReference<>(new HashMap<>());
+        Map<UUID, Integer> resumedSeconds = new ConcurrentHashMap<>();
+        AtomicReference<Map<UUID, Integer>> owed = new AtomicReference<>(new HashMap<>());
+
+        plugin.getDatabaseManager().write(STATUS_KEY, session -> {
+            Map<UUID, Long> active = session.afkStatus().findActive();
+
+            // Balances in the cache would overwrite a credit made here. Players who are loaded but
+            // not resumed joined meanwhile; their rows are left for the join to close, which keeps
+            // the accrued seconds as carry-over.
+            Set<UUID> skipped = new HashSet<>();
+            for (UUID uuid : active.keySet()) {
+                if (online.contains(uuid) || shardManager.isLoadedOrLoading(uuid)) {
+                    skipped.add(uuid);
                 }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to load AFK location: " + e.getMessage());
+            active.keySet().retainAll(online);
+            for (UUID uuid : active.keySet()) {
+                resumedSeconds.put(uuid, session.afkStatus().findAccruedSeconds(uuid));
+            }
+            resumed.set(active);
+
+            Map<UUID, Integer> settled = session.afkStatus().settle(settings.getAfkIntervalSeconds(),
+                    settings.getAfkAmount(), skipped);
+            session.balances().addAll(settled, Collections.emptyMap(), shardManager.getMaxBatchSize());
+            owed.set(settled);
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning("Failed to recover AFK sessions: " + error.getMessage());
+                return;
+            }
+
+            int interval = settings.getAfkIntervalSeconds();
+            for (Map.Entry<UUID, Long> entry : resumed.get().entrySet()) {
+                activeSessions.put(entry.getKey(), new AfkSession(entry.getValue(), interval,
+                        resumedSeconds.getOrDefault(entry.getKey(), 0)));
+            }
+            if (!activeSessions.isEmpty()) {
+                startRewardTicker();
+            }
+            assignResumedSessions();
+
+            int paid = 0;
+            for (int shards : owed.get().values()) {
+                paid += shards;
+            }
+
+            plugin.getLogger().info("Resumed " + resumed.get().size() + " AFK sessions, paid " + paid
+                    + " shards to " + owed.get().size() + " players for interrupted sessions");
+        });
+    }
+
+    /**
+     * Count resumed sessions against the zone nearest to each player, so they take up capacity
+     * and are released like any other session. Zones and sessions load independently, so this
+     * runs after each of them; players already in a zone are skipped.
+     */
+    private void assignResumedSessions() {
+        if (proxyManager.isEnabled() || worldGuard.requiresRegion()) {
+            return;
+        }
+
+        for (UUID uuid : activeSessions.keySet()) {
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player == null || zones.getZoneOf(uuid) != null) {
+                continue;
+            }
+            scheduler.runAtEntity(player, () -> {
+                if (activeSessions.containsKey(uuid)) {
+                    zones.assignNearest(uuid, player.getLocation());
+                }
+            }, null);
         }
     }
 
     /**
-     * Load active AFK sessions from database
+     * Read a joining player's saved return location and AFK status on the storage executor
      */
-    private void loadActiveSessions() {
-        try (Connection conn = plugin.getDatabaseManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT uuid, start_time FROM afk_status WHERE is_afk = 1 OR is_afk = TRUE")) {
+    public CompletableFuture<Void> preloadPlayer(UUID uuid) {
+        return plugin.getDatabaseManager().read(uuid, session -> {
+            LocationRecord stored = session.afkLocations().findPlayerLocation(uuid);
+            Location saved = stored != null ? stored.toLocation(plugin.getServer()) : null;
+            if (saved != null) {
+                savedLocations.put(uuid, saved);
+            }
 
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                long startTime = rs.getLong("start_time");
+            if (session.afkStatus().isAfk(uuid)) {
+                staleAfkStatus.add(uuid);
+            }
 
-                Player player = plugin.getServer().getPlayer(uuid);
-                if (player != null && player.isOnline()) {
-                    activeSessions.put(uuid, new AfkSession(startTime));
-                }
+            int carried = session.afkStatus().findAccruedSeconds(uuid);
+            if (carried > 0) {
+                carriedSeconds.put(uuid, carried);
             }
+            return null;
+        });
+    }
 
-            plugin.getLogger().info("Loaded " + activeSessions.size() + " active AFK sessions");
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to load AFK sessions: " + e.getMessage());
-        }
+    /**
+     * Drop preloaded data for a player who left or whose login was refused
+     */
+    public void discardPreloaded(UUID uuid) {
+        savedLocations.remove(uuid);
+        staleAfkStatus.remove(uuid);
+        carriedSeconds.remove(uuid);
     }
 
     /**
-     * Set AFK location
+     * Check and clear a stale stored AFK status found during pre-login
      */
-    public void setAfkLocation(Player player) {
+    public boolean consumeStaleAfkStatus(UUID uuid) {
+        return staleAfkStatus.remove(uuid);
+    }
+
+    /**
+     * Add an AFK zone at the player's location, or move an existing one
+     *
+     * @param capacity most players in the zone at once, 0 for no limit
+     */
+    public void setAfkZone(Player player, String name, int capacity) {
         Location loc = player.getLocation();
 
         // Check for Nether/End
@@ -124,41 +263,35 @@ public class AfkManager {
             return;
         }
 
-        this.afkLocation = loc.clone();
+        zones.put(name, loc, capacity);
 
         // Save to database
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String sql = plugin.getDatabaseManager().getStorageType().equals("mysql")
-                    ? "INSERT INTO afk_location (id, world, x, y, z) VALUES (1, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE world=VALUES(world), x=VALUES(x), y=VALUES(y), z=VALUES(z)"
-                    : "INSERT OR REPLACE INTO afk_location (id, world, x, y, z) VALUES (1, ?, ?, ?, ?)";
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, loc.getWorld().getName());
-                stmt.setDouble(2, loc.getX());
-                stmt.setDouble(3, loc.getY());
-                stmt.setDouble(4, loc.getZ());
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save AFK location: " + e.getMessage());
-        }
-
-        messages.sendAdminLocationSet(player);
+        AfkZoneRecord record = new AfkZoneRecord(name, LocationRecord.of(loc), capacity);
+        plugin.getDatabaseManager().write(LOCATION_KEY, session -> session.afkLocations().saveZone(record))
+                .exceptionally(error -> {
+                    plugin.getLogger().severe("Failed to save AFK zone " + name + ": " + error.getMessage());
+                    return null;
+                });
+
+        messages.sendAdminLocationSet(player, name, capacity);
     }
 
     /**
-     * Remove AFK location
+     * Remove an AFK zone. Players in it stay until they leave AFK.
+     *
+     * @return false if no zone has that name
      */
-    public void removeAfkLocation() {
-        this.afkLocation = null;
-
-        try (Connection conn = plugin.getDatabaseManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM afk_location WHERE id = 1")) {
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to remove AFK location: " + e.getMessage());
+    public boolean removeAfkZone(String name) {
+        if (!zones.remove(name)) {
+            return false;
         }
+
+        plugin.getDatabaseManager().write(LOCATION_KEY, session -> session.afkLocations().deleteZone(name))
+                .exceptionally(error -> {
+                    plugin.getLogger().severe("Failed to remove AFK zone " + name + ": " + error.getMessage());
+                    return null;
+                });
+        return true;
     }
 
     /**
@@ -185,14 +318,20 @@ public class AfkManager {
             return;
         }
 
-        // Check if AFK location is set (legacy mode)
-        if (!worldGuard.requiresRegion() && afkLocation == null) {
-            messages.sendAfkNoLocation(player);
-            return;
+        // Check if an AFK zone is set and has room (legacy mode)
+        if (!worldGuard.requiresRegion()) {
+            if (zones.isEmpty()) {
+                messages.sendAfkNoLocation(player);
+                return;
+            }
+            if (!proxyManager.isEnabled() && !zones.hasRoom()) {
+                messages.sendAfkZonesFull(player);
+                return;
+            }
         }
 
         // Get countdown delay
-        int delay = plugin.getConfig().getInt("earning.afk.teleport-delay", 5);
+        int delay = plugin.getSettings().getAfkTeleportDelay();
 
         // Save current location
         Location startLocation = player.getLocation().clone();
@@ -201,59 +340,32 @@ public class AfkManager {
         PendingTeleport pending = new PendingTeleport(startLocation, delay);
         pendingTeleports.put(uuid, pending);
 
-        // Create boss bar with Turkish message
-        BossBar bossBar = plugin.getServer().createBossBar(
-                "§6AFK'ye §e" + delay + " §6saniye...",
-                BarColor.YELLOW,
-                BarStyle.SOLID
-        );
-        bossBar.addPlayer(player);
-        countdownBars.put(uuid, bossBar);
-
         // Start countdown
         messages.sendAfkEntering(player, delay);
-        startCountdown(player, pending, bossBar);
-    }
-
-    /**
-     * Start countdown timer
-     */
-    private void startCountdown(Player player, PendingTeleport pending, BossBar bossBar) {
-        UUID uuid = player.getUniqueId();
-        int totalDelay = plugin.getConfig().getInt("earning.afk.teleport-delay", 5);
-
-        scheduler.runGlobalTimer(new Runnable() {
-            int remaining = totalDelay;
-
+        countdowns.start(player, delay, new CountdownEngine.Handler() {
             @Override
-            public void run() {
+            public boolean tick(Player player, int remaining) {
                 // Check if still pending
-                if (!pendingTeleports.containsKey(uuid) || !player.isOnline()) {
-                    cleanup(uuid);
-                    return;
+                if (pendingTeleports.get(uuid) != pending) {
+                    return false;
                 }
 
                 // Check if player moved
                 if (hasPlayerMoved(player, pending.getStartLocation())) {
                     messages.sendAfkCancelledMovement(player);
                     cancelAfkProcess(player);
-                    return;
+                    return false;
                 }
+                return true;
+            }
 
-                // Update boss bar with Turkish message
-                double progress = (double) remaining / totalDelay;
-                bossBar.setProgress(Math.max(0, Math.min(1, progress)));
-                bossBar.setTitle("§6AFK'ye §e" + remaining + " §6saniye...");
-
-                if (remaining <= 0) {
-                    // Complete teleport
+            @Override
+            public void complete(Player player) {
+                if (pendingTeleports.get(uuid) == pending && player.isOnline()) {
                     completeAfkProcess(player, pending);
-                    return;
                 }
-
-                remaining--;
             }
-        }, 0L, 20L); // Every second
+        });
     }
 
     /**
@@ -265,6 +377,20 @@ public class AfkManager {
         // Clean up countdown
         cleanup(uuid);
 
+        // Pick the least-loaded zone (legacy mode); they may have filled up during the countdown
+        Location target = null;
+        if (!proxyManager.isEnabled() && !worldGuard.requiresRegion()) {
+            target = zones.assign(uuid);
+            if (target == null) {
+                if (zones.isEmpty()) {
+                    messages.sendAfkNoLocation(player);
+                } else {
+                    messages.sendAfkZonesFull(player);
+                }
+                return;
+            }
+        }
+
         // Save player's location to database
         savePlayerLocation(player, pending.getStartLocation());
 
@@ -272,25 +398,28 @@ public class AfkManager {
         if (proxyManager.isEnabled()) {
             // Send to AFK server
             proxyManager.sendToAfkServer(player);
-        } else if (!worldGuard.requiresRegion() && afkLocation != null) {
+        } else if (target != null) {
             // Legacy teleport mode
+            Location zoneLocation = target;
             scheduler.runAtLocation(player.getLocation(), () -> {
-                player.teleport(afkLocation);
+                player.teleport(zoneLocation);
             });
         }
 
-        // Create AFK session
-        AfkSession session = new AfkSession(System.currentTimeMillis());
+        // Create AFK session, picking up time left over from an interrupted one
+        Integer carried = carriedSeconds.remove(uuid);
+        AfkSession session = new AfkSession(System.currentTimeMillis(), plugin.getSettings().getAfkIntervalSeconds(),
+                carried != null ? carried : 0);
         activeSessions.put(uuid, session);
 
         // Save to database
-        saveAfkStatus(uuid, true, session.getStartTime());
+        saveAfkStatus(uuid, true, session.getStartTime(), session.getAccruedSeconds());
 
         // Send message
         messages.sendAfkStarted(player);
 
-        // Start earning task
-        startEarningTask(player);
+        // Make sure sessions are being paid out
+        startRewardTicker();
     }
 
     /**
@@ -306,6 +435,16 @@ public class AfkManager {
      * Quit AFK mode
      */
     public void quitAfk(Player player) {
+        quitAfk(player, false);
+    }
+
+    /**
+     * Quit AFK mode
+     *
+     * @param keepProgress keep the seconds accrued toward the next reward for the player's next
+     *                     session, as when the server stops rather than the player leaving AFK
+     */
+    public void quitAfk(Player player, boolean keepProgress) {
         UUID uuid = player.getUniqueId();
 
         // Check if in pending
@@ -321,168 +460,260 @@ public class AfkManager {
             return;
         }
 
-        // Get saved location
-        Location savedLocation = getSavedLocation(uuid);
-
         // Handle cross-server return
         if (proxyManager.isEnabled()) {
             proxyManager.returnToOriginServer(player);
-        } else if (savedLocation != null && !worldGuard.requiresRegion()) {
-            // Legacy teleport back
-            scheduler.runAtLocation(player.getLocation(), () -> {
-                player.teleport(savedLocation);
-            });
+            forgetPlayerLocation(uuid);
+        } else if (!worldGuard.requiresRegion()) {
+            returnToSavedLocation(player);
+        } else {
+            forgetPlayerLocation(uuid);
         }
+        zones.release(uuid);
 
         // Remove session
-        activeSessions.remove(uuid);
-        saveAfkStatus(uuid, false, 0);
+        AfkSession session = activeSessions.remove(uuid);
+        saveAfkStatus(uuid, false, 0, keepProgress && session != null ? session.getAccruedSeconds() : 0);
 
         messages.sendAfkQuit(player);
     }
 
     /**
-     * Start earning task for AFK player
+     * Send a player back whose AFK session ended with a disconnect or crash, once they have
+     * rejoined: teleport them to the return location left over from it (legacy mode) and
+     * drop the location
+     *
+     * @return false if no return location was left over
      */
-    private void startEarningTask(Player player) {
+    public boolean returnFromInterruptedAfk(Player player) {
         UUID uuid = player.getUniqueId();
-        int interval = plugin.getConfig().getInt("earning.afk.interval", 30);
-        int amount = plugin.getConfig().getInt("earning.afk.amount", 1);
+        if (!savedLocations.containsKey(uuid) || isAfk(player) || isPendingAfk(player)) {
+            return false;
+        }
 
-        scheduler.runGlobalTimer(new Runnable() {
-            int countdown = interval;
+        if (proxyManager.isEnabled() || worldGuard.requiresRegion()) {
+            forgetPlayerLocation(uuid);
+            return false;
+        }
+        returnToSavedLocation(player);
+        return true;
+    }
 
-            @Override
-            public void run() {
-                // Check if still AFK and online
-                if (!isAfk(player) || !player.isOnline()) {
-                    return;
-                }
+    /**
+     * Teleport a player back to where they started AFK (legacy mode), then drop the location.
+     * The location is cached when AFK starts and read during pre-login, so this normally does
+     * not wait for the database.
+     */
+    private void returnToSavedLocation(Player player) {
+        UUID uuid = player.getUniqueId();
+        Location current = player.getLocation();
+        Location savedLocation = savedLocations.get(uuid);
+        if (savedLocation != null) {
+            scheduler.runAtLocation(current, () -> player.teleport(savedLocation));
+            forgetPlayerLocation(uuid);
+            return;
+        }
 
-                // Check WorldGuard region if required
-                if (worldGuard.requiresRegion() && !worldGuard.isInAfkRegion(player)) {
-                    return;
-                }
+        // Only reached if pre-login could not read the location. The row is deleted once the
+        // read is done, unless the player has started AFK again and saved a new one meanwhile.
+        getSavedLocation(uuid).thenAccept(stored -> {
+            if (stored != null && player.isOnline()) {
+                scheduler.runAtLocation(current, () -> player.teleport(stored));
+            }
+        }).whenComplete((ignored, error) -> {
+            if (!savedLocations.containsKey(uuid)) {
+                forgetPlayerLocation(uuid);
+            }
+        });
+    }
 
-                if (countdown <= 0) {
-                    // Give shards
-                    plugin.getShardManager().addShards(player, amount);
-                    messages.sendAfkEarned(player, amount);
+    /**
+     * Start the shared reward ticker if it is not running
+     */
+    private void startRewardTicker() {
+        synchronized (rewardTickerLock) {
+            if (rewardTicker != null) {
+                return;
+            }
+            rewardTicker = scheduler.runGlobalTimer(this::tickRewards, 20L, 20L);
+            liveRewardTasks.incrementAndGet();
+        }
+    }
 
-                    // Play sound
-                    scheduler.runAtLocation(player.getLocation(), () -> {
-                        player.playSound(player.getLocation(), Sound.ENTITY_EXPERIENCE_ORB_PICKUP, 0.5f, 1.0f);
-                    });
+    /**
+     * Cancel the shared reward ticker
+     */
+    private void stopRewardTicker() {
+        synchronized (rewardTickerLock) {
+            if (rewardTicker == null) {
+                return;
+            }
+            rewardTicker.cancel();
+            rewardTicker = null;
+            liveRewardTasks.decrementAndGet();
+        }
+    }
 
-                    countdown = interval;
-                } else {
-                    countdown--;
+    /**
+     * Runs once a second: hand every active session to its player's region thread, which
+     * counts it down and pays out when due. Stops itself once nobody is AFK.
+     */
+    private void tickRewards() {
+        if (activeSessions.isEmpty()) {
+            synchronized (rewardTickerLock) {
+                // A session may have started since the check above
+                if (activeSessions.isEmpty()) {
+                    stopRewardTicker();
                 }
             }
-        }, 0L, 20L);
+            return;
+        }
+
+        Settings settings = plugin.getSettings();
+        for (Map.Entry<UUID, AfkSession> entry : activeSessions.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player != null) {
+                AfkSession session = entry.getValue();
+                scheduler.runAtEntity(player, () -> tickSession(player, session, settings), null);
+            }
+        }
+
+        if (++secondsSinceCheckpoint >= settings.getAfkCheckpointSeconds()) {
+            secondsSinceCheckpoint = 0;
+            checkpointSessions();
+        }
     }
 
     /**
-     * Check if player has moved
+     * Write the accrued seconds of every active session in one batch, so a crash loses at most
+     * one checkpoint interval of progress
      */
-    private boolean hasPlayerMoved(Player player, Location original) {
-        Location current = player.getLocation();
-        double tolerance = plugin.getConfig().getDouble("earning.afk.movement-tolerance", 0.1);
-        return original.distanceSquared(current) > (tolerance * tolerance);
+    private void checkpointSessions() {
+        Map<UUID, Integer> accrued = new HashMap<>();
+        for (Map.Entry<UUID, AfkSession> entry : activeSessions.entrySet()) {
+            accrued.put(entry.getKey(), entry.getValue().getAccruedSeconds());
+        }
+        if (accrued.isEmpty()) {
+            return;
+        }
+
+        plugin.getDatabaseManager().write(STATUS_KEY, session -> session.afkStatus().checkpoint(accrued))
+                .exceptionally(error -> {
+                    plugin.getLogger().warning("Failed to checkpoint AFK sessions: " + error.getMessage());
+                    return null;
+                });
     }
 
     /**
-     * Save player location to database
+     * Count down one AFK session and reward it if due. Runs on the player's region thread.
      */
-    private void savePlayerLocation(Player player, Location location) {
-        UUID uuid = player.getUniqueId();
+    private void tickSession(Player player, AfkSession session, Settings settings) {
+        // Check if still AFK in this session and online
+        if (activeSessions.get(player.getUniqueId()) != session || !player.isOnline()) {
+            return;
+        }
 
-        try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-            String sql = plugin.getDatabaseManager().getStorageType().equals("mysql")
-                    ? "INSERT INTO player_locations (uuid, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE world=VALUES(world), x=VALUES(x), y=VALUES(y), z=VALUES(z), yaw=VALUES(yaw), pitch=VALUES(pitch)"
-                    : "INSERT OR REPLACE INTO player_locations (uuid, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, uuid.toString());
-                stmt.setString(2, location.getWorld().getName());
-                stmt.setDouble(3, location.getX());
-                stmt.setDouble(4, location.getY());
-                stmt.setDouble(5, location.getZ());
-                stmt.setFloat(6, location.getYaw());
-                stmt.setFloat(7, location.getPitch());
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to save player location: " + e.getMessage());
+        // Check WorldGuard region if required
+        if (worldGuard.requiresRegion() && !worldGuard.isInAfkRegion(player)) {
+            return;
+        }
+
+        if (!session.tick(settings.getAfkIntervalSeconds())) {
+            return;
         }
+
+        // Give shards
+        int amount = settings.getAfkAmount();
+        if (plugin.getShardManager().addShards(player, amount, ShardBalanceChangeEvent.Cause.AFK)) {
+            messages.sendAfkEarned(player, amount);
+        }
+
+        // Play sound
+        player.playSound(player.getLocation(), Sound.ENTITY_EXPERIENCE_ORB_PICKUP, 0.5f, 1.0f);
     }
 
     /**
-     * Get saved player location
+     * Number of reward tasks currently scheduled, 1 while anyone is AFK and 0 otherwise
      */
-    private Location getSavedLocation(UUID uuid) {
-        try (Connection conn = plugin.getDatabaseManager().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT world, x, y, z, yaw, pitch FROM player_locations WHERE uuid = ?")) {
+    public int getLiveRewardTasks() {
+        return liveRewardTasks.get();
+    }
 
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
+    /**
+     * Number of players in AFK mode
+     */
+    public int getActiveSessionCount() {
+        return activeSessions.size();
+    }
 
-            if (rs.next()) {
-                String worldName = rs.getString("world");
-                World world = plugin.getServer().getWorld(worldName);
+    /**
+     * Check if player has moved
+     */
+    private boolean hasPlayerMoved(Player player, Location original) {
+        Location current = player.getLocation();
+        return original.distanceSquared(current) > plugin.getSettings().getAfkMovementToleranceSquared();
+    }
 
-                if (world != null) {
-                    return new Location(
-                            world,
-                            rs.getDouble("x"),
-                            rs.getDouble("y"),
-                            rs.getDouble("z"),
-                            rs.getFloat("yaw"),
-                            rs.getFloat("pitch")
-                    );
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get saved location: " + e.getMessage());
-        }
+    /**
+     * Cache a player's return location and write it through to the database on the storage
+     * executor, so it survives a crash while the player is AFK
+     */
+    private void savePlayerLocation(Player player, Location location) {
+        UUID uuid = player.getUniqueId();
+        savedLocations.put(uuid, location.clone());
+        LocationRecord record = LocationRecord.of(location);
+
+        plugin.getDatabaseManager().write(uuid, session -> session.afkLocations().savePlayerLocation(uuid, record))
+                .exceptionally(error -> {
+                    plugin.getLogger().warning("Failed to save player location: " + error.getMessage());
+                    return null;
+                });
+    }
 
-        return null;
+    /**
+     * Drop a player's return location from the cache and the database once they are back
+     */
+    private void forgetPlayerLocation(UUID uuid) {
+        savedLocations.remove(uuid);
+        plugin.getDatabaseManager().write(uuid, session -> session.afkLocations().deletePlayerLocation(uuid))
+                .exceptionally(error -> {
+                    plugin.getLogger().warning("Failed to delete player location: " + error.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Get saved player location on the storage executor, for when the cache missed. Runs after
+     * any pending save for the same player.
+     */
+    private CompletableFuture<Location> getSavedLocation(UUID uuid) {
+        return plugin.getDatabaseManager().read(uuid, session -> session.afkLocations().findPlayerLocation(uuid))
+                .handle((stored, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Failed to get saved location: " + error.getMessage());
+                        return null;
+                    }
+                    return stored != null ? stored.toLocation(plugin.getServer()) : null;
+                });
     }
 
     /**
      * Save AFK status to database
      */
-    private void saveAfkStatus(UUID uuid, boolean isAfk, long startTime) {
-        scheduler.runAsync(() -> {
-            try (Connection conn = plugin.getDatabaseManager().getConnection()) {
-                String sql = plugin.getDatabaseManager().getStorageType().equals("mysql")
-                        ? "INSERT INTO afk_status (uuid, is_afk, start_time) VALUES (?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE is_afk=VALUES(is_afk), start_time=VALUES(start_time)"
-                        : "INSERT OR REPLACE INTO afk_status (uuid, is_afk, start_time) VALUES (?, ?, ?)";
-
-                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, uuid.toString());
-                    stmt.setBoolean(2, isAfk);
-                    stmt.setLong(3, startTime);
-                    stmt.executeUpdate();
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to save AFK status: " + e.getMessage());
-            }
-        });
+    private void saveAfkStatus(UUID uuid, boolean isAfk, long startTime, int accruedSeconds) {
+        plugin.getDatabaseManager().write(uuid, session -> session.afkStatus().save(uuid, isAfk, startTime, accruedSeconds))
+                .exceptionally(error -> {
+                    plugin.getLogger().warning("Failed to save AFK status: " + error.getMessage());
+                    return null;
+                });
     }
 
     /**
      * Cleanup countdown resources
      */
     private void cleanup(UUID uuid) {
-        // Remove boss bar
-        BossBar bar = countdownBars.remove(uuid);
-        if (bar != null) {
-            bar.removeAll();
-        }
+        // Hide the boss bar
+        countdowns.cancel(uuid);
 
         // Remove pending teleport
         pendingTeleports.remove(uuid);
@@ -503,21 +734,23 @@ public class AfkManager {
     }
 
     /**
-     * Get AFK location
+     * Get the AFK zones
      */
-    public Location getAfkLocation() {
-        return afkLocation;
+    public AfkZones getZones() {
+        return zones;
     }
 
     /**
-     * Remove AFK data for a player
+     * Remove AFK data for a player. Accrued seconds are kept for their next session.
      */
     public void removeAfkData(Player player) {
         UUID uuid = player.getUniqueId();
-        activeSessions.remove(uuid);
+        AfkSession session = activeSessions.remove(uuid);
         pendingTeleports.remove(uuid);
         cleanup(uuid);
-        saveAfkStatus(uuid, false, 0);
+        zones.release(uuid);
+        int accrued = session != null ? session.getAccruedSeconds() : carriedSeconds.getOrDefault(uuid, 0);
+        saveAfkStatus(uuid, false, 0, accrued);
 
         // Clean up proxy data
         if (proxyManager.isEnabled()) {
@@ -532,6 +765,13 @@ public class AfkManager {
         return worldGuard;
     }
 
+    /**
+     * Get the countdown engine for AFK teleports
+     */
+    public CountdownEngine getCountdowns() {
+        return countdowns;
+    }
+
     /**
      * Get proxy manager
      */
@@ -550,11 +790,10 @@ public class AfkManager {
      * Shutdown manager
      */
     public void shutdown() {
-        // Remove all boss bars
-        for (BossBar bar : countdownBars.values()) {
-            bar.removeAll();
-        }
-        countdownBars.clear();
+        stopRewardTicker();
+
+        // Stop countdowns and remove all boss bars
+        countdowns.shutdown();
 
         // Clear sessions
         activeSessions.clear();
@@ -568,13 +807,46 @@ public class AfkManager {
 class AfkSession {
     private final long startTime;
 
-    public AfkSession(long startTime) {
+    // Interval the countdown was last started from, follows config reloads
+    private int interval;
+
+    // Seconds in the AFK region left before the next reward
+    private int countdown;
+
+    /**
+     * @param carriedSeconds seconds already accrued toward the first reward
+     */
+    public AfkSession(long startTime, int interval, int carriedSeconds) {
         this.startTime = startTime;
+        this.interval = interval;
+        this.countdown = Math.max(0, interval - Math.max(0, carriedSeconds));
     }
 
     public long getStartTime() {
         return startTime;
     }
+
+    /**
+     * Seconds accrued toward the next reward
+     */
+    synchronized int getAccruedSeconds() {
+        return Math.max(0, interval - countdown);
+    }
+
+    /**
+     * Count down one second
+     *
+     * @return true if a reward is due, after which the countdown restarts
+     */
+    synchronized boolean tick(int interval) {
+        this.interval = interval;
+        if (countdown <= 0) {
+            countdown = interval;
+            return true;
+        }
+        countdown--;
+        return false;
+    }
 }
 
 /**
@@ -0,0 +1,198 @@
+package com.xshards;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * AFK zones and the players assigned to them.
+ *
+ * A new AFK player goes to the zone with the fewest AFK players around it. Zones in the same
+ * 512x512 block area of a world are usually ticked by the same Folia region, so their players
+ * are counted together first; ties go to the emptier zone. Spreading players over areas and
+ * worlds spreads their entities over region threads. Full zones are skipped.
+ */
+public final class AfkZones {
+
+    /** Zone used when none is named, and the one the old single AFK location became */
+    public static final String DEFAULT_ZONE = "default";
+
+    // Zones in the same 2^9 = 512 block square count as one area
+    private static final int AREA_SHIFT = 9;
+
+    // All state below is guarded by this
+    private final Map<String, Zone> zones = new TreeMap<>();
+    private final Map<UUID, String> assignments = new HashMap<>();
+    private final Map<String, Integer> occupants = new HashMap<>();
+
+    /**
+     * Add a zone or replace the zone with the same name. Players already in it stay assigned.
+     *
+     * @param capacity most players at once, 0 for no limit
+     */
+    public synchronized void put(String name, Location location, int capacity) {
+        zones.put(name, new Zone(name, location.clone(), Math.max(0, capacity)));
+    }
+
+    /**
+     * Remove a zone. Players in it stay there until they leave AFK.
+     *
+     * @return false if no zone has that name
+     */
+    public synchronized boolean remove(String name) {
+        return zones.remove(name) != null;
+    }
+
+    public synchronized boolean isEmpty() {
+        return zones.isEmpty();
+    }
+
+    /**
+     * Check if any zone can take another player
+     */
+    public synchronized boolean hasRoom() {
+        for (Zone zone : zones.values()) {
+            if (!isFull(zone)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Assign a player to the least-loaded zone, moving them out of their current one
+     *
+     * @return where to teleport the player, or null if every zone is full
+     */
+    public synchronized Location assign(UUID uuid) {
+        release(uuid);
+
+        Map<String, Integer> areaLoad = new HashMap<>();
+        for (Zone zone : zones.values()) {
+            areaLoad.merge(zone.area, occupantsOf(zone.name), Integer::sum);
+        }
+
+        Zone best = null;
+        int bestArea = 0;
+        int bestZone = 0;
+        for (Zone zone : zones.values()) {
+            if (isFull(zone)) {
+                continue;
+            }
+            int area = areaLoad.get(zone.area);
+            int count = occupantsOf(zone.name);
+            // Zones are iterated by name, so equal loads resolve the same way every time
+            if (best == null || area < bestArea || (area == bestArea && count < bestZone)) {
+                best = zone;
+                bestArea = area;
+                bestZone = count;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        assignments.put(uuid, best.name);
+        occupants.merge(best.name, 1, Integer::sum);
+        return best.location.clone();
+    }
+
+    /**
+     * Count a player who is already AFK against the zone nearest to them in their world, even
+     * if it is full, since they are standing there. Used for sessions resumed after a restart.
+     *
+     * @return false if the player already has a zone or no zone is in their world
+     */
+    public synchronized boolean assignNearest(UUID uuid, Location location) {
+        if (assignments.containsKey(uuid)) {
+            return false;
+        }
+
+        Zone nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Zone zone : zones.values()) {
+            if (!zone.location.getWorld().equals(location.getWorld())) {
+                continue;
+            }
+            double distance = zone.location.distanceSquared(location);
+            if (distance < nearestDistance) {
+                nearest = zone;
+                nearestDistance = distance;
+            }
+        }
+        if (nearest == null) {
+            return false;
+        }
+
+        assignments.put(uuid, nearest.name);
+        occupants.merge(nearest.name, 1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * Take a player out of their zone, if they have one
+     */
+    public synchronized void release(UUID uuid) {
+        String name = assignments.remove(uuid);
+        if (name != null) {
+            occupants.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Zone a player is assigned to, or null
+     */
+    public synchronized String getZoneOf(UUID uuid) {
+        return assignments.get(uuid);
+    }
+
+    public synchronized int size() {
+        return zones.size();
+    }
+
+    /**
+     * Number of players assigned to any zone
+     */
+    public synchronized int getAssignedCount() {
+        return assignments.size();
+    }
+
+    /**
+     * One line per zone: name, players and capacity, in name order
+     */
+    public synchronized List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Zone zone : zones.values()) {
+            lines.add(zone.name + " " + occupantsOf(zone.name) + "/" + (zone.capacity == 0 ? "∞" : zone.capacity));
+        }
+        return lines;
+    }
+
+    private boolean isFull(Zone zone) {
+        return zone.capacity > 0 && occupantsOf(zone.name) >= zone.capacity;
+    }
+
+    private int occupantsOf(String name) {
+        return occupants.getOrDefault(name, 0);
+    }
+
+    private static final class Zone {
+        final String name;
+        final Location location;
+        final int capacity;
+        final String area;
+
+        Zone(String name, Location location, int capacity) {
+            this.name = name;
+            this.location = location;
+            this.capacity = capacity;
+            this.area = location.getWorld().getName() + ":" + (location.getBlockX() >> AREA_SHIFT) + ":"
+                    + (location.getBlockZ() >> AREA_SHIFT);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.xshards;
+
+import com.xshards.scheduler.SchedulerAdapter;
+import org.bukkit.Server;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Second-by-second countdowns shown on boss bars, driven by one shared ticker.
+ *
+ * Players who start a countdown of the same length within the same second form a cohort
+ * and share one boss bar, so a burst of starts costs one bar and one title/progress update
+ * per second instead of one per player. Titles are built once per number of seconds, and
+ * bars of finished cohorts go back to a pool to be reused.
+ *
+ * Per-player checks run on the player's region thread through {@link Handler}.
+ */
+public final class CountdownEngine {
+
+    /**
+     * Per-player callbacks, called on the player's region thread
+     */
+    public interface Handler {
+        /**
+         * Called every second with the seconds left, 0 on the last call
+         *
+         * @return false to stop the countdown; the handler does its own cleanup then
+         */
+        boolean tick(Player player, int remaining);
+
+        /**
+         * Called once after the last tick when the countdown was not stopped
+         */
+        void complete(Player player);
+    }
+
+    // Bars kept for reuse; more than this are discarded
+    private static final int MAX_POOLED_BARS = 16;
+
+    private final Server server;
+    private final SchedulerAdapter scheduler;
+    private final IntFunction<String> titleFormat;
+    private final BarColor color;
+    private final BarStyle style;
+
+    // All state below is guarded by this
+    private final Map<UUID, Countdown> countdowns = new HashMap<>();
+    private final List<Cohort> cohorts = new ArrayList<>();
+    private final Map<Integer, Cohort> openCohorts = new HashMap<>();
+    private final ArrayDeque<BossBar> pool = new ArrayDeque<>();
+    private String[] titles = new String[0];
+    private ScheduledTask ticker;
+    private long barsCreated;
+
+    /**
+     * @param titleFormat bar title for a number of seconds left
+     */
+    public CountdownEngine(Server server, SchedulerAdapter scheduler, IntFunction<String> titleFormat,
+                           BarColor color, BarStyle style) {
+        this.server = server;
+        this.scheduler = scheduler;
+        this.titleFormat = titleFormat;
+        this.color = color;
+        this.style = style;
+    }
+
+    /**
+     * Start a countdown, replacing any running countdown of the player
+     */
+    public synchronized void start(Player player, int seconds, Handler handler) {
+        int total = Math.max(0, seconds);
+        cancel(player.getUniqueId());
+
+        // Join the cohort started this second, if any
+        Cohort cohort = openCohorts.get(total);
+        if (cohort == null) {
+            cohort = new Cohort(total, acquireBar(total));
+            cohorts.add(cohort);
+            openCohorts.put(total, cohort);
+        }
+
+        Countdown countdown = new Countdown(player, handler, cohort);
+        cohort.members.add(countdown);
+        cohort.bar.addPlayer(player);
+        countdowns.put(player.getUniqueId(), countdown);
+
+        if (ticker == null) {
+            ticker = scheduler.runGlobalTimer(this::tick, 20L, 20L);
+        }
+    }
+
+    /**
+     * Stop a player's countdown without calling the handler
+     *
+     * @return true if the player had a countdown
+     */
+    public synchronized boolean cancel(UUID uuid) {
+        Countdown countdown = countdowns.remove(uuid);
+        if (countdown == null) {
+            return false;
+        }
+        countdown.cohort.members.remove(countdown);
+        countdown.cohort.bar.removePlayer(countdown.player);
+        return true;
+    }
+
+    /**
+     * Check if a player has a countdown running
+     */
+    public synchronized boolean isRunning(UUID uuid) {
+        return countdowns.containsKey(uuid);
+    }
+
+    /**
+     * Number of players counting down
+     */
+    public synchronized int getActiveCountdowns() {
+        return countdowns.size();
+    }
+
+    /**
+     * Number of shared bars in use
+     */
+    public synchronized int getActiveBars() {
+        return cohorts.size();
+    }
+
+    /**
+     * Number of bars waiting in the pool
+     */
+    public synchronized int getPooledBars() {
+        return pool.size();
+    }
+
+    /**
+     * Number of bars created since startup, the rest were reused
+     */
+    public synchronized long getBarsCreated() {
+        return barsCreated;
+    }
+
+    /**
+     * Stop every countdown and the ticker, and hide every bar
+     */
+    public synchronized void shutdown() {
+        if (ticker != null) {
+            ticker.cancel();
+            ticker = null;
+        }
+        for (Cohort cohort : cohorts) {
+            cohort.bar.removeAll();
+        }
+        cohorts.clear();
+        openCohorts.clear();
+        countdowns.clear();
+        pool.clear();
+    }
+
+    /**
+     * Runs once a second: advance every cohort, update its bar once and hand each member to
+     * its region thread
+     */
+    private void tick() {
+        List<Countdown> due = new ArrayList<>();
+        synchronized (this) {
+            // Players starting from now on form new cohorts
+            openCohorts.clear();
+
+            Iterator<Cohort> it = cohorts.iterator();
+            while (it.hasNext()) {
+                Cohort cohort = it.next();
+                if (cohort.members.isEmpty()) {
+                    it.remove();
+                    releaseBar(cohort.bar);
+                    continue;
+                }
+
+                cohort.remaining = Math.max(0, cohort.remaining - 1);
+                cohort.bar.setTitle(title(cohort.remaining));
+                cohort.bar.setProgress(cohort.total == 0 ? 0.0 : (double) cohort.remaining / cohort.total);
+                due.addAll(cohort.members);
+            }
+
+            if (cohorts.isEmpty()) {
+                ticker.cancel();
+                ticker = null;
+                return;
+            }
+        }
+
+        for (Countdown countdown : due) {
+            int remaining = countdown.cohort.remaining;
+            scheduler.runAtEntity(countdown.player, () -> advance(countdown, remaining),
+                    () -> cancel(countdown.player.getUniqueId()));
+        }
+    }
+
+    /**
+     * Run one player's tick on their region thread
+     */
+    private void advance(Countdown countdown, int remaining) {
+        UUID uuid = countdown.player.getUniqueId();
+        synchronized (this) {
+            if (countdowns.get(uuid) != countdown) {
+                return;
+            }
+        }
+
+        if (!countdown.handler.tick(countdown.player, remaining)) {
+            cancel(uuid);
+            return;
+        }
+
+        if (remaining <= 0) {
+            synchronized (this) {
+                // Cancelled while the handler ran
+                if (countdowns.get(uuid) != countdown) {
+                    return;
+                }
+                cancel(uuid);
+            }
+            countdown.handler.complete(countdown.player);
+        }
+    }
+
+    private String title(int seconds) {
+        if (seconds >= titles.length) {
+            String[] grown = new String[Math.max(seconds + 1, titles.length * 2)];
+            System.arraycopy(titles, 0, grown, 0, titles.length);
+            titles = grown;
+        }
+        String title = titles[seconds];
+        if (title == null) {
+            title = titleFormat.apply(seconds);
+            titles[seconds] = title;
+        }
+        return title;
+    }
+
+    private BossBar acquireBar(int seconds) {
+        BossBar bar = pool.poll();
+        if (bar == null) {
+            barsCreated++;
+            bar = server.createBossBar(title(seconds), color, style);
+        } else {
+            bar.setTitle(title(seconds));
+        }
+        bar.setProgress(1.0);
+        bar.setVisible(true);
+        return bar;
+    }
+
+    private void releaseBar(BossBar bar) {
+        bar.removeAll();
+        if (pool.size() < MAX_POOLED_BARS) {
+            pool.push(bar);
+        }
+    }
+
+    private static final class Cohort {
+        final int total;
+        final BossBar bar;
+        final Set<Countdown> members = new HashSet<>();
+        int remaining;
+
+        Cohort(int total, BossBar bar) {
+            this.total = total;
+            this.remaining = total;
+            this.bar = bar;
+        }
+    }
+
+    private static final class Countdown {
+        final Player player;
+        final Handler handler;
+        final Cohort cohort;
+
+        Countdown(Player player, Handler handler, Cohort cohort) {
+            this.player = player;
+            this.handler = handler;
+            this.cohort = cohort;
+        }
+    }
+}
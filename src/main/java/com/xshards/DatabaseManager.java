@@ -1,17 +1,31 @@
 package com.xshards;
 
+import com.xshards.storage.ConnectionPool;
+import com.xshards.storage.ItemStackCodec;
+import com.xshards.storage.PoolSettings;
+import com.xshards.storage.SQLiteWriter;
+import com.xshards.storage.SqlWork;
+import com.xshards.storage.StorageBackend;
+import com.xshards.storage.StorageExecutor;
+import com.xshards.storage.StorageQuery;
+import com.xshards.storage.StorageWork;
+import com.xshards.storage.memory.MemoryStorageBackend;
+import com.xshards.storage.sql.MySQLStorageBackend;
+import com.xshards.storage.sql.SQLiteStorageBackend;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.sql.*;
-import java.util.logging.Level;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Manages database connections and operations
@@ -19,8 +33,14 @@ import java.util.logging.Level;
 public class DatabaseManager {
 
     private final Plugin plugin;
-    private Connection connection;
+    private ConnectionPool pool;
+    private SQLiteWriter writer;
+    private StorageExecutor executor;
     private final String storageType;
+    private final StorageBackend backend;
+
+    // Latest queued write per key, so keyed reads see it once it has committed
+    private final Map<Object, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
 
     // MySQL settings
     private String host;
@@ -31,18 +51,43 @@ public class DatabaseManager {
 
     // SQLite settings
     private String sqliteFile;
+    private boolean sqliteWal;
+    private String sqliteSynchronous;
+    private long sqliteMmapSize;
+    private int sqliteCacheSize;
+    private int sqliteBusyTimeout;
+    private int sqliteReadConnections;
 
     private boolean connected = false;
+    private volatile boolean shuttingDown = false;
     private boolean connectionLogged = false;
 
     public DatabaseManager(Plugin plugin) {
         this.plugin = plugin;
         loadConfig();
         this.storageType = plugin.getConfig().getString("storage.type", "sqlite").toLowerCase();
+        this.backend = createBackend();
         connect();
+        createExecutor();
         createTables();
     }
 
+    /**
+     * Pick the storage backend for storage.type
+     */
+    private StorageBackend createBackend() {
+        int chunkSize = plugin.getConfig().getInt("storage.migration.chunk-size", 5000);
+        switch (storageType) {
+            case "mysql":
+                return new MySQLStorageBackend(chunkSize);
+            case "memory":
+                plugin.getLogger().warning("Using in-memory storage, nothing will be saved across restarts!");
+                return new MemoryStorageBackend();
+            default:
+                return new SQLiteStorageBackend(chunkSize);
+        }
+    }
+
     /**
      * Load configuration
      */
@@ -58,224 +103,344 @@ public class DatabaseManager {
 
         // SQLite settings
         sqliteFile = config.getString("storage.sqlite.file", "plugins/XShards/storage/xshards.db");
+        sqliteWal = config.getBoolean("storage.sqlite.wal", true);
+        sqliteSynchronous = config.getString("storage.sqlite.synchronous", "NORMAL").toUpperCase(Locale.ROOT);
+        if (!sqliteSynchronous.matches("OFF|NORMAL|FULL|EXTRA")) {
+            plugin.getLogger().warning("Unknown storage.sqlite.synchronous '" + sqliteSynchronous + "', using NORMAL");
+            sqliteSynchronous = "NORMAL";
+        }
+        sqliteMmapSize = Math.max(0, config.getLong("storage.sqlite.mmap-size", 268435456L));
+        sqliteCacheSize = config.getInt("storage.sqlite.cache-size", -16384);
+        sqliteBusyTimeout = Math.max(0, config.getInt("storage.sqlite.busy-timeout", 5000));
+        sqliteReadConnections = Math.max(1, config.getInt("storage.sqlite.read-connections", 4));
     }
 
     /**
      * Connect to database
      */
     public void connect() {
-        try {
-            if (storageType.equals("mysql")) {
-                connectToMySQL();
-            } else {
-                connectToSQLite();
+        synchronized (this) {
+            if (pool != null && !pool.isClosed()) {
+                return;
+            }
+            if (!backend.requiresConnection()) {
+                connected = true;
+                return;
             }
-            connected = true;
 
-            if (!connectionLogged) {
-                plugin.getLogger().info("Successfully connected to " + storageType.toUpperCase() + " database");
-                connectionLogged = true;
+            try {
+                if (storageType.equals("mysql")) {
+                    Class.forName("com.mysql.cj.jdbc.Driver");
+                    pool = new ConnectionPool("xshards-mysql", plugin.getLogger(), this::openMySQLConnection,
+                            PoolSettings.fromConfig(plugin.getConfig().getConfigurationSection("storage.pool"),
+                                    Integer.MAX_VALUE));
+                } else if (sqliteWal) {
+                    Class.forName("org.sqlite.JDBC");
+                    // WAL lets readers run alongside the single writer: writes go through the
+                    // writer thread, the pool only hands out read-only connections
+                    writer = new SQLiteWriter("xshards-sqlite-writer", plugin.getLogger(),
+                            () -> openSQLiteConnection(false),
+                            plugin.getConfig().getInt("storage.executor.queue-size", 2000),
+                            plugin.getConfig().getInt("storage.sqlite.max-batch-size", 256),
+                            plugin.getConfig().getLong("storage.executor.offer-timeout", 1000),
+                            this::mayWaitForQueue);
+                    pool = new ConnectionPool("xshards-sqlite-read", plugin.getLogger(),
+                            () -> openSQLiteConnection(true),
+                            PoolSettings.fromConfig(plugin.getConfig().getConfigurationSection("storage.pool"),
+                                    sqliteReadConnections));
+                } else {
+                    Class.forName("org.sqlite.JDBC");
+                    // Rollback journal allows a single connection, so the pool is capped at one
+                    pool = new ConnectionPool("xshards-sqlite", plugin.getLogger(), () -> openSQLiteConnection(false),
+                            PoolSettings.fromConfig(plugin.getConfig().getConfigurationSection("storage.pool"), 1));
+                }
+                connected = true;
+
+                SQLException failure = pool.getStartupFailure();
+                if (failure != null) {
+                    plugin.getLogger().severe("Failed to connect to " + storageType.toUpperCase() + " database: "
+                            + failure.getMessage() + ". Connections will be retried when needed.");
+                } else if (!connectionLogged) {
+                    plugin.getLogger().info("Successfully connected to " + storageType.toUpperCase() + " database");
+                    connectionLogged = true;
+                }
+            } catch (ClassNotFoundException e) {
+                plugin.getLogger().severe("Failed to connect to database: " + storageType.toUpperCase()
+                        + " JDBC driver not found!");
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to connect to database: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
     /**
-     * Connect to MySQL
+     * Open a new MySQL connection
      */
-    private void connectToMySQL() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            return;
+    private Connection openMySQLConnection() throws SQLException {
+        String url = "jdbc:mysql://" + host + ":" + port + "/" + database +
+                "?useSSL=false&useUnicode=true&characterEncoding=UTF-8" +
+                "&cachePrepStmts=true&useServerPrepStmts=true&rewriteBatchedStatements=true";
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    /**
+     * Open a new SQLite connection
+     *
+     * @param readOnly refuse writes on this connection (WAL read pool)
+     */
+    private Connection openSQLiteConnection(boolean readOnly) throws SQLException {
+        // Ensure directory exists
+        File dbFile = new File(sqliteFile);
+        File parentDir = dbFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
         }
 
-        synchronized (this) {
-            if (connection != null && !connection.isClosed()) {
-                return;
-            }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
 
-            try {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                String url = "jdbc:mysql://" + host + ":" + port + "/" + database +
-                        "?useSSL=false&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8";
-                connection = DriverManager.getConnection(url, username, password);
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("MySQL JDBC driver not found!");
+        try (Statement statement = connection.createStatement()) {
+            // Wait for locks instead of failing with SQLITE_BUSY
+            statement.execute("PRAGMA busy_timeout = " + sqliteBusyTimeout);
+            statement.execute("PRAGMA foreign_keys = ON");
+
+            if (sqliteWal) {
+                // WAL only needs an fsync at checkpoints, so NORMAL is still crash-safe
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = " + sqliteSynchronous);
+                statement.execute("PRAGMA mmap_size = " + sqliteMmapSize);
+                statement.execute("PRAGMA cache_size = " + sqliteCacheSize);
+                statement.execute("PRAGMA temp_store = MEMORY");
+            }
+            if (readOnly) {
+                statement.execute("PRAGMA query_only = ON");
             }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
         }
+        return connection;
     }
 
     /**
-     * Connect to SQLite
+     * Lease a connection from the pool. Closing it returns it to the pool.
+     * With the SQLite WAL profile this connection is read-only; write through {@link #write}.
      */
-    private void connectToSQLite() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            return;
+    public Connection getConnection() throws SQLException {
+        if (pool == null || pool.isClosed()) {
+            connect();
         }
+        if (pool == null) {
+            throw new SQLException("Database is not connected");
+        }
+        return pool.getConnection();
+    }
 
-        synchronized (this) {
-            if (connection != null && !connection.isClosed()) {
-                return;
-            }
+    /**
+     * Create the dedicated storage executor
+     */
+    private void createExecutor() {
+        FileConfiguration config = plugin.getConfig();
+        int threads = config.getInt("storage.executor.threads", 2);
+        if (backend instanceof SQLiteStorageBackend) {
+            // Reads are limited by the read pool; rollback journal mode has a single connection
+            threads = sqliteWal ? Math.min(threads, sqliteReadConnections) : 1;
+        }
 
-            try {
-                Class.forName("org.sqlite.JDBC");
+        executor = new StorageExecutor("xshards-storage", plugin.getLogger(), threads,
+                config.getInt("storage.executor.queue-size", 2000),
+                StorageExecutor.RejectionPolicy.fromConfig(config.getString("storage.executor.rejection-policy", "block")),
+                config.getLong("storage.executor.offer-timeout", 1000),
+                this::mayWaitForQueue);
+    }
 
-                // Ensure directory exists
-                File dbFile = new File(sqliteFile);
-                File parentDir = dbFile.getParentFile();
-                if (parentDir != null && !parentDir.exists()) {
-                    parentDir.mkdirs();
-                }
+    /**
+     * Check if the current thread may wait for room in a full storage queue: anything but a
+     * tick thread, and any thread once shutdown has started
+     */
+    private boolean mayWaitForQueue() {
+        return shuttingDown || !Bukkit.isPrimaryThread();
+    }
 
-                connection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+    /**
+     * Let the final saves wait for room in full storage queues, even on the main thread.
+     * Call before saving on shutdown.
+     */
+    public void prepareShutdown() {
+        shuttingDown = true;
+    }
 
-                // Enable foreign keys
-                try (Statement statement = connection.createStatement()) {
-                    statement.execute("PRAGMA foreign_keys = ON;");
-                }
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("SQLite JDBC driver not found!");
-            }
+    /**
+     * Run database work on the storage executor
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Run database work on the storage executor, after earlier work with the same key
+     */
+    public void execute(Object key, Runnable task) {
+        CompletableFuture<Void> pending = pendingWrite(key);
+        if (pending == null) {
+            executor.execute(key, task);
+        } else {
+            pending.whenComplete((ignored, error) -> executor.execute(key, task));
         }
     }
 
     /**
-     * Get database connection
+     * Run database work on the storage executor and complete the future with its result
      */
-    public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connect();
-            return connection;
+    public <T> CompletableFuture<T> supply(Object key, Callable<T> task) {
+        CompletableFuture<Void> pending = pendingWrite(key);
+        if (pending == null) {
+            return executor.supply(key, task);
         }
+        return pending.handle((ignored, error) -> null).thenCompose(ignored -> executor.supply(key, task));
+    }
 
-        // Test connection validity
-        try {
-            if (!connection.isValid(1)) {
-                plugin.getLogger().info("Database connection lost. Reconnecting...");
-                connect();
+    /**
+     * Run reads on the storage executor, after earlier work and committed writes with the same key
+     */
+    public <T> CompletableFuture<T> read(Object key, StorageQuery<T> query) {
+        return supply(key, () -> {
+            if (!backend.requiresConnection()) {
+                return query.run(backend.openSession(null));
             }
-        } catch (SQLException e) {
-            connect();
-        }
+            try (Connection conn = getConnection()) {
+                return query.run(backend.openSession(conn));
+            }
+        });
+    }
 
-        return connection;
+    /**
+     * Run writes in a transaction. With the SQLite WAL profile they go through the single
+     * writer thread and may be committed together with other writes; otherwise they run on
+     * the storage executor. Later keyed work for the same key waits for the commit.
+     */
+    public CompletableFuture<Void> write(Object key, StorageWork work) {
+        if (!backend.requiresConnection()) {
+            return executor.supply(key, () -> {
+                work.run(backend.openSession(null));
+                return null;
+            });
+        }
+        return writeSql(key, conn -> work.run(backend.openSession(conn)));
     }
 
     /**
-     * Create all required tables
+     * Run writes for many keys in one transaction. Every key is held from this call until the
+     * write completes, so later keyed work for any of them waits for the commit. The work is
+     * only built once the keys are held, so it can pick the keys it still has to touch.
+     *
+     * @param work builds the work, or returns null if there is nothing to write
      */
-    private void createTables() {
+    public CompletableFuture<Void> write(Collection<?> keys, Supplier<StorageWork> work) {
+        CompletableFuture<Void> held = new CompletableFuture<>();
+        for (Object key : keys) {
+            CompletableFuture<Void> pending = pendingWrites.compute(key, (ignored, earlier) ->
+                    earlier == null || earlier.isDone() ? held : CompletableFuture.allOf(earlier, held));
+            pending.whenComplete((ignored, error) -> pendingWrites.remove(key, pending));
+        }
+
         try {
-            if (storageType.equals("mysql")) {
-                createMySQLTables();
-            } else {
-                createSQLiteTables();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to create database tables: " + e.getMessage());
-            e.printStackTrace();
+            StorageWork built = work.get();
+            CompletableFuture<Void> written = built != null ? write(null, built) : CompletableFuture.completedFuture(null);
+            written.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    held.completeExceptionally(error);
+                } else {
+                    held.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            held.completeExceptionally(e);
         }
+        return held;
     }
 
     /**
-     * Create MySQL tables
+     * Run JDBC work in a transaction, through the writer if there is one
      */
-    private void createMySQLTables() throws SQLException {
-        try (Statement stmt = getConnection().createStatement()) {
-            // Player shards table
-            stmt.execute("CREATE TABLE IF NOT EXISTS player_shards (" +
-                    "uuid VARCHAR(36) PRIMARY KEY, " +
-                    "player_name VARCHAR(16) NOT NULL, " +
-                    "shards INT NOT NULL DEFAULT 0, " +
-                    "INDEX idx_shards (shards)" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
-
-            // Shop items table
-            stmt.execute("CREATE TABLE IF NOT EXISTS shop_items (" +
-                    "slot INT PRIMARY KEY, " +
-                    "item_data MEDIUMBLOB NOT NULL, " +
-                    "price DOUBLE NOT NULL" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
-
-            // AFK location table
-            stmt.execute("CREATE TABLE IF NOT EXISTS afk_location (" +
-                    "id INT PRIMARY KEY, " +
-                    "world VARCHAR(64) NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
-
-            // Player locations table
-            stmt.execute("CREATE TABLE IF NOT EXISTS player_locations (" +
-                    "uuid VARCHAR(36) PRIMARY KEY, " +
-                    "world VARCHAR(64) NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL, " +
-                    "yaw FLOAT NOT NULL, " +
-                    "pitch FLOAT NOT NULL" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
-
-            // AFK status table
-            stmt.execute("CREATE TABLE IF NOT EXISTS afk_status (" +
-                    "uuid VARCHAR(36) PRIMARY KEY, " +
-                    "is_afk BOOLEAN NOT NULL DEFAULT FALSE, " +
-                    "start_time BIGINT, " +
-                    "INDEX idx_afk (is_afk)" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+    private CompletableFuture<Void> writeSql(Object key, SqlWork work) {
+        if (writer == null) {
+            return executor.supply(key, () -> {
+                try (Connection conn = getConnection()) {
+                    conn.setAutoCommit(false);
+                    try {
+                        work.run(conn);
+                        conn.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+                return null;
+            });
         }
+
+        CompletableFuture<Void> future = writer.submit(work);
+        if (key != null) {
+            pendingWrites.put(key, future);
+            future.whenComplete((ignored, error) -> pendingWrites.remove(key, future));
+        }
+        return future;
     }
 
     /**
-     * Create SQLite tables
+     * Uncommitted writer work for a key, or null if there is none
      */
-    private void createSQLiteTables() throws SQLException {
-        try (Statement stmt = getConnection().createStatement()) {
-            // Player shards table
-            stmt.execute("CREATE TABLE IF NOT EXISTS player_shards (" +
-                    "uuid TEXT PRIMARY KEY, " +
-                    "player_name TEXT NOT NULL, " +
-                    "shards INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_shards ON player_shards(shards)");
-
-            // Shop items table
-            stmt.execute("CREATE TABLE IF NOT EXISTS shop_items (" +
-                    "slot INTEGER PRIMARY KEY, " +
-                    "item_data BLOB NOT NULL, " +
-                    "price REAL NOT NULL" +
-                    ")");
-
-            // AFK location table
-            stmt.execute("CREATE TABLE IF NOT EXISTS afk_location (" +
-                    "id INTEGER PRIMARY KEY, " +
-                    "world TEXT NOT NULL, " +
-                    "x REAL NOT NULL, " +
-                    "y REAL NOT NULL, " +
-                    "z REAL NOT NULL" +
-                    ")");
-
-            // Player locations table
-            stmt.execute("CREATE TABLE IF NOT EXISTS player_locations (" +
-                    "uuid TEXT PRIMARY KEY, " +
-                    "world TEXT NOT NULL, " +
-                    "x REAL NOT NULL, " +
-                    "y REAL NOT NULL, " +
-                    "z REAL NOT NULL, " +
-                    "yaw REAL NOT NULL, " +
-                    "pitch REAL NOT NULL" +
-                    ")");
-
-            // AFK status table
-            stmt.execute("CREATE TABLE IF NOT EXISTS afk_status (" +
-                    "uuid TEXT PRIMARY KEY, " +
-                    "is_afk INTEGER NOT NULL DEFAULT 0, " +
-                    "start_time INTEGER" +
-                    ")");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_afk ON afk_status(is_afk)");
+    private CompletableFuture<Void> pendingWrite(Object key) {
+        if (key == null) {
+            return null;
+        }
+        CompletableFuture<Void> pending = pendingWrites.get(key);
+        return pending == null || pending.isDone() ? null : pending;
+    }
+
+    /**
+     * Get the storage executor
+     */
+    public StorageExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the connection pool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Get the storage backend
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Get the SQLite writer, or null when not using the SQLite WAL profile
+     */
+    public SQLiteWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Create all required tables and apply pending schema migrations
+     */
+    private void createTables() {
+        if (!backend.requiresConnection()) {
+            return;
+        }
+
+        // Migrations manage their own transactions, so they get a connection of their own
+        // rather than running inside the writer's
+        try (Connection conn = writer != null ? openSQLiteConnection(false) : getConnection()) {
+            backend.createSchema(conn, plugin.getLogger());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to create database tables: " + e.getMessage());
+            e.printStackTrace();
         }
     }
 
@@ -284,11 +449,7 @@ public class DatabaseManager {
      */
     public static byte[] serializeItemStack(ItemStack item) {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ObjectOutputStream dataOutput = new ObjectOutputStream(outputStream);
-            dataOutput.writeObject(item.serialize());
-            dataOutput.close();
-            return outputStream.toByteArray();
+            return ItemStackCodec.encode(item);
         } catch (Exception e) {
             Bukkit.getLogger().severe("Failed to serialize ItemStack: " + e.getMessage());
             return new byte[0];
@@ -296,17 +457,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Deserialize ItemStack from bytes
+     * Deserialize ItemStack from bytes. Accepts both the current and the legacy format.
      */
     public static ItemStack deserializeItemStack(byte[] data) {
         try {
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
-            ObjectInputStream dataInput = new ObjectInputStream(inputStream);
-            @SuppressWarnings("unchecked")
-            java.util.Map<String, Object> serializedItem =
-                    (java.util.Map<String, Object>) dataInput.readObject();
-            dataInput.close();
-            return ItemStack.deserialize(serializedItem);
+            return ItemStackCodec.decode(data);
         } catch (Exception e) {
             Bukkit.getLogger().severe("Failed to deserialize ItemStack: " + e.getMessage());
             return null;
@@ -314,17 +469,23 @@ public class DatabaseManager {
     }
 
     /**
-     * Close database connection
+     * Close the connection pool
      */
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                connected = false;
-                plugin.getLogger().info("Database connection closed");
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error closing database connection", e);
+        if (executor != null) {
+            executor.shutdown(10000);
+        }
+        if (writer != null) {
+            plugin.getLogger().info("Closing SQLite writer (" + writer.describe() + ")");
+            writer.shutdown(10000);
+            writer = null;
+        }
+
+        if (pool != null && !pool.isClosed()) {
+            plugin.getLogger().info("Closing database pool (" + pool.describe() + ")");
+            pool.close();
+            connected = false;
+            plugin.getLogger().info("Database connection closed");
         }
     }
 
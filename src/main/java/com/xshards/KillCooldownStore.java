@@ -0,0 +1,280 @@
+package com.xshards;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Per killer/victim cooldowns for kill rewards.
+ *
+ * Kills are grouped into time buckets by when they happened, in a ring just large enough to
+ * cover one cooldown. Once every kill in a bucket is past its cooldown the whole bucket is
+ * replaced, so expiry costs nothing per entry and the store never holds more than one
+ * cooldown's worth of kills. Safe to use from any region thread.
+ */
+public final class KillCooldownStore {
+
+    private static final int FILE_MAGIC = 0x58534b43; // "XSKC"
+    private static final int FILE_VERSION = 1;
+
+    // Number of buckets one cooldown is split into; entries expire at most this fraction late
+    private static final int BUCKETS_PER_COOLDOWN = 8;
+
+    private final long cooldownMillis;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> ring;
+
+    public KillCooldownStore(long cooldownMillis) {
+        this.cooldownMillis = Math.max(0L, cooldownMillis);
+        this.bucketMillis = Math.max(1L, (this.cooldownMillis + BUCKETS_PER_COOLDOWN - 1) / BUCKETS_PER_COOLDOWN);
+        // One bucket per slice of the cooldown, plus the one being filled and one expiring
+        this.ring = new AtomicReferenceArray<>((int) ((this.cooldownMillis + bucketMillis - 1) / bucketMillis) + 2);
+    }
+
+    public long getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    /**
+     * Record a kill unless the pair is still on cooldown
+     *
+     * @return true if the kill was recorded and should be rewarded
+     */
+    public boolean tryRecord(UUID killer, UUID victim, long now) {
+        if (cooldownMillis == 0L) {
+            return true;
+        }
+
+        PairKey key = new PairKey(killer, victim);
+        if (lastKill(key, now) >= 0L) {
+            return false;
+        }
+        // A victim dies once per event, so the same pair never races itself here
+        return bucketFor(now).kills.putIfAbsent(key, now) == null;
+    }
+
+    /**
+     * Time left before killing this victim rewards shards again, or 0 if it already does
+     */
+    public long getRemaining(UUID killer, UUID victim, long now) {
+        long last = lastKill(new PairKey(killer, victim), now);
+        return last < 0L ? 0L : last + cooldownMillis - now;
+    }
+
+    /**
+     * Number of pairs on cooldown, including ones in buckets that have not been dropped yet
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null) {
+                size += bucket.kills.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Number of buckets currently holding kills
+     */
+    public int getLiveBuckets() {
+        int live = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && !bucket.kills.isEmpty()) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    public int getBucketCount() {
+        return ring.length();
+    }
+
+    /**
+     * Copy every pair still on cooldown into a store with a different cooldown
+     */
+    public KillCooldownStore withCooldown(long newCooldownMillis, long now) {
+        KillCooldownStore copy = new KillCooldownStore(newCooldownMillis);
+        forEachLive(now, (key, time) -> {
+            if (time + copy.cooldownMillis > now) {
+                copy.bucketFor(time).kills.putIfAbsent(key, time);
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * Write the pairs still on cooldown to a file, 40 bytes per pair
+     */
+    public void save(File file, long now) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Map<PairKey, Long> live = new HashMap<>();
+        forEachLive(now, live::put);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(live.size());
+            for (Map.Entry<PairKey, Long> entry : live.entrySet()) {
+                PairKey key = entry.getKey();
+                out.writeLong(key.killerMost);
+                out.writeLong(key.killerLeast);
+                out.writeLong(key.victimMost);
+                out.writeLong(key.victimLeast);
+                out.writeLong(entry.getValue());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read pairs written by {@link #save}, skipping ones whose cooldown has run out
+     *
+     * @return number of pairs restored
+     */
+    public int load(File file, long now) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int restored = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unrecognized kill cooldown file " + file.getName());
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                PairKey key = new PairKey(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                long time = in.readLong();
+                if (time <= now && time + cooldownMillis > now) {
+                    bucketFor(time).kills.putIfAbsent(key, time);
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Time of the last kill still on cooldown for a pair, or -1
+     */
+    private long lastKill(PairKey key, long now) {
+        long last = -1L;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null) {
+                continue;
+            }
+            Long time = bucket.kills.get(key);
+            if (time != null && time + cooldownMillis > now && time > last) {
+                last = time;
+            }
+        }
+        return last;
+    }
+
+    private void forEachLive(long now, BiConsumer<PairKey, Long> action) {
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null) {
+                continue;
+            }
+            for (Map.Entry<PairKey, Long> entry : bucket.kills.entrySet()) {
+                if (entry.getValue() + cooldownMillis > now) {
+                    action.accept(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Bucket holding kills made at the given time, replacing the expired bucket in its slot
+     */
+    private Bucket bucketFor(long time) {
+        long epoch = Math.floorDiv(time, bucketMillis);
+        int slot = (int) Math.floorMod(epoch, (long) ring.length());
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket;
+            }
+            if (bucket != null && bucket.epoch > epoch) {
+                // Only reachable for times older than the ring, which are expired already
+                return new Bucket(epoch);
+            }
+            Bucket fresh = new Bucket(epoch);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final ConcurrentHashMap<PairKey, Long> kills = new ConcurrentHashMap<>();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * Killer and victim UUIDs packed into four longs
+     */
+    private static final class PairKey {
+        final long killerMost;
+        final long killerLeast;
+        final long victimMost;
+        final long victimLeast;
+
+        PairKey(UUID killer, UUID victim) {
+            this(killer.getMostSignificantBits(), killer.getLeastSignificantBits(),
+                    victim.getMostSignificantBits(), victim.getLeastSignificantBits());
+        }
+
+        PairKey(long killerMost, long killerLeast, long victimMost, long victimLeast) {
+            this.killerMost = killerMost;
+            this.killerLeast = killerLeast;
+            this.victimMost = victimMost;
+            this.victimLeast = victimLeast;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PairKey)) {
+                return false;
+            }
+            PairKey other = (PairKey) o;
+            return killerMost == other.killerMost && killerLeast == other.killerLeast
+                    && victimMost == other.victimMost && victimLeast == other.victimLeast;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = killerMost * 31 + killerLeast;
+            hash = hash * 31 + victimMost;
+            hash = hash * 31 + victimLeast;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
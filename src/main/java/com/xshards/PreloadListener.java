@@ -0,0 +1,85 @@
+package com.xshards;
+
+import com.xshards.utils.MessageManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads player data on the async pre-login thread so joining does no database work
+ */
+public class PreloadListener implements Listener {
+
+    private final Xshards plugin;
+    private final ShardManager shardManager;
+    private final AfkManager afkManager;
+    private final MessageManager messages;
+
+    public PreloadListener(Xshards plugin, ShardManager shardManager, AfkManager afkManager,
+                           MessageManager messages) {
+        this.plugin = plugin;
+        this.shardManager = shardManager;
+        this.afkManager = afkManager;
+        this.messages = messages;
+    }
+
+    /**
+     * Fetch balance, saved return location and AFK status before the player enters the world
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        UUID uuid = event.getUniqueId();
+        CompletableFuture<Void> preload = CompletableFuture.allOf(
+                shardManager.loadPlayerData(uuid, event.getName()),
+                afkManager.preloadPlayer(uuid)
+        );
+
+        long timeoutMillis = plugin.getSettings().getPreloadTimeoutMillis();
+        try {
+            preload.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            handleFailure(event, "timed out after " + timeoutMillis + "ms");
+        } catch (ExecutionException e) {
+            handleFailure(event, String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handleFailure(event, "interrupted");
+        }
+    }
+
+    /**
+     * Drop preloaded data if a later listener refused the login
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            shardManager.discardPreloaded(event.getUniqueId());
+            afkManager.discardPreloaded(event.getUniqueId());
+        }
+    }
+
+    /**
+     * Apply the configured policy when storage is too slow or failing
+     */
+    private void handleFailure(AsyncPlayerPreLoginEvent event, String reason) {
+        if (plugin.getSettings().isPreloadKickOnFailure()) {
+            plugin.getLogger().warning("Could not load data for " + event.getName() + " (" + reason + "), refusing login");
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, messages.getMessage("errors.storage-unavailable"));
+        } else {
+            // The load keeps running; changes made meanwhile are merged once it completes
+            plugin.getLogger().warning("Could not load data for " + event.getName() + " (" + reason
+                    + "), continuing with defaults");
+        }
+    }
+}
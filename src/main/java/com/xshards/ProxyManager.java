@@ -33,10 +33,12 @@ public class ProxyManager {
     public ProxyManager(Xshards plugin, MessageManager messages) {
         this.plugin = plugin;
         this.messages = messages;
-        this.enabled = plugin.getConfig().getBoolean("earning.afk.cross-server.enabled", false);
-        this.afkServers = plugin.getConfig().getStringList("earning.afk.cross-server.servers");
-        this.fallbackServer = plugin.getConfig().getString("earning.afk.cross-server.fallback-server", "lobby");
-        this.returnToOrigin = plugin.getConfig().getBoolean("earning.afk.cross-server.return-to-origin", true);
+        // The messaging channel is registered once, so cross-server settings apply on restart
+        Settings settings = plugin.getSettings();
+        this.enabled = settings.isCrossServerEnabled();
+        this.afkServers = settings.getCrossServerServers();
+        this.fallbackServer = settings.getCrossServerFallback();
+        this.returnToOrigin = settings.isCrossServerReturnToOrigin();
         this.originServers = new HashMap<>();
         this.serverIndex = new AtomicInteger(0);
 
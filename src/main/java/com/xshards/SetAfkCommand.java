@@ -7,11 +7,17 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Locale;
+import java.util.regex.Pattern;
+
 /**
- * Command to set AFK location
+ * Command to set an AFK zone: /setafk [zone] [capacity]
  */
 class SetAfkCommand implements CommandExecutor {
 
+    // Zone names are stored lower case and fit the database column
+    private static final Pattern ZONE_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+
     private final AfkManager afkManager;
     private final MessageManager messages;
 
@@ -36,15 +42,37 @@ class SetAfkCommand implements CommandExecutor {
             return true;
         }
 
-        // Set AFK location
-        afkManager.setAfkLocation(player);
+        String zone = args.length > 0 ? zoneName(args[0]) : AfkZones.DEFAULT_ZONE;
+        int capacity = 0;
+        if (args.length > 1) {
+            try {
+                capacity = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                capacity = -1;
+            }
+        }
+        if (zone == null || capacity < 0) {
+            messages.send(player, "admin.invalid-zone");
+            return true;
+        }
+
+        // Set AFK zone
+        afkManager.setAfkZone(player, zone, capacity);
 
         return true;
     }
+
+    /**
+     * Normalize a zone name typed by an admin, or null if it is not a valid name
+     */
+    static String zoneName(String input) {
+        String name = input.toLowerCase(Locale.ROOT);
+        return ZONE_NAME.matcher(name).matches() ? name : null;
+    }
 }
 
 /**
- * Command to remove AFK location
+ * Command to remove an AFK zone: /afkremove [zone]
  */
 class AfkRemoveCommand implements CommandExecutor {
 
@@ -67,9 +95,14 @@ class AfkRemoveCommand implements CommandExecutor {
             }
         }
 
-        // Remove AFK location
-        afkManager.removeAfkLocation();
-        messages.send(sender, "admin.location-removed");
+        String zone = args.length > 0 ? SetAfkCommand.zoneName(args[0]) : AfkZones.DEFAULT_ZONE;
+
+        // Remove AFK zone
+        if (zone != null && afkManager.removeAfkZone(zone)) {
+            messages.sendAdminLocationRemoved(sender, zone);
+        } else {
+            messages.sendAdminZoneNotFound(sender, args.length > 0 ? args[0] : AfkZones.DEFAULT_ZONE);
+        }
 
         return true;
     }
@@ -0,0 +1,238 @@
+package com.xshards;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable snapshot of config.yml, parsed once on enable and on every reload.
+ *
+ * Hot paths read plain fields from here instead of walking YAML paths. Get the current
+ * snapshot from {@link Xshards#getSettings()} and keep it only for the duration of one call,
+ * so a reload is picked up on the next one. Storage settings that only apply on restart are
+ * read by DatabaseManager and ShardManager when they start and are not part of the snapshot.
+ */
+public final class Settings {
+
+    private final String storageType;
+    private final long preloadTimeoutMillis;
+    private final boolean preloadKickOnFailure;
+
+    private final boolean playtimeEnabled;
+    private final long playtimeIntervalMillis;
+    private final int playtimeAmount;
+
+    private final boolean killsEnabled;
+    private final int killAmount;
+    private final long killCooldownMillis;
+
+    private final boolean afkEnabled;
+    private final int afkIntervalSeconds;
+    private final int afkAmount;
+    private final int afkTeleportDelay;
+    private final int afkCheckpointSeconds;
+    private final double afkMovementToleranceSquared;
+
+    private final boolean worldGuardEnabled;
+    private final String worldGuardRegion;
+    private final boolean worldGuardRequireRegion;
+    private final boolean worldGuardAutoStart;
+    private final boolean worldGuardAutoStop;
+
+    private final boolean crossServerEnabled;
+    private final List<String> crossServerServers;
+    private final String crossServerFallback;
+    private final boolean crossServerReturnToOrigin;
+
+    private final boolean vaultEnabled;
+    private final int vaultOfflineCacheSize;
+    private final long vaultOfflineCacheTtlMillis;
+
+    private final int storeSize;
+
+    private Settings(FileConfiguration config) {
+        this.storageType = config.getString("storage.type", "sqlite").toLowerCase(Locale.ROOT);
+        this.preloadTimeoutMillis = Math.max(100, config.getLong("storage.preload.timeout", 3000));
+        this.preloadKickOnFailure = config.getString("storage.preload.on-failure", "allow").equalsIgnoreCase("kick");
+
+        this.playtimeEnabled = config.getBoolean("earning.playtime.enabled", true);
+        this.playtimeIntervalMillis = Math.max(1000L, config.getLong("earning.playtime.interval", 3600000));
+        this.playtimeAmount = config.getInt("earning.playtime.amount", 3);
+
+        this.killsEnabled = config.getBoolean("earning.kills.enabled", true);
+        this.killAmount = config.getInt("earning.kills.amount", 10);
+        this.killCooldownMillis = Math.max(0L, config.getLong("earning.kills.cooldown", 86400000L));
+
+        this.afkEnabled = config.getBoolean("earning.afk.enabled", true);
+        this.afkIntervalSeconds = config.getInt("earning.afk.interval", 30);
+        this.afkAmount = config.getInt("earning.afk.amount", 1);
+        this.afkTeleportDelay = config.getInt("earning.afk.teleport-delay", 5);
+        this.afkCheckpointSeconds = Math.max(1, config.getInt("earning.afk.checkpoint-interval", 15));
+        double tolerance = config.getDouble("earning.afk.movement-tolerance", 0.1);
+        this.afkMovementToleranceSquared = tolerance * tolerance;
+
+        this.worldGuardEnabled = config.getBoolean("earning.afk.worldguard.enabled", false);
+        this.worldGuardRegion = config.getString("earning.afk.worldguard.region", "afk-zone");
+        this.worldGuardRequireRegion = config.getBoolean("earning.afk.worldguard.require-region", true);
+        this.worldGuardAutoStart = config.getBoolean("earning.afk.worldguard.auto-start", true);
+        this.worldGuardAutoStop = config.getBoolean("earning.afk.worldguard.auto-stop", true);
+
+        this.crossServerEnabled = config.getBoolean("earning.afk.cross-server.enabled", false);
+        this.crossServerServers = Collections.unmodifiableList(
+                new ArrayList<>(config.getStringList("earning.afk.cross-server.servers")));
+        this.crossServerFallback = config.getString("earning.afk.cross-server.fallback-server", "lobby");
+        this.crossServerReturnToOrigin = config.getBoolean("earning.afk.cross-server.return-to-origin", true);
+
+        this.vaultEnabled = config.getBoolean("vault.enabled", true);
+        this.vaultOfflineCacheSize = Math.max(0, config.getInt("vault.offline-cache.size", 1000));
+        this.vaultOfflineCacheTtlMillis = Math.max(1, config.getLong("vault.offline-cache.ttl", 60)) * 1000L;
+
+        this.storeSize = Math.min(54, Math.max(9, (config.getInt("store.size", 54) / 9) * 9));
+    }
+
+    /**
+     * Parse a config. Missing keys fall back to the defaults in the bundled config.yml.
+     */
+    public static Settings fromConfig(FileConfiguration config) {
+        return new Settings(config);
+    }
+
+    // ---- Storage ----
+
+    /**
+     * Configured storage type in lower case
+     */
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public long getPreloadTimeoutMillis() {
+        return preloadTimeoutMillis;
+    }
+
+    public boolean isPreloadKickOnFailure() {
+        return preloadKickOnFailure;
+    }
+
+    // ---- Playtime rewards ----
+
+    public boolean isPlaytimeEnabled() {
+        return playtimeEnabled;
+    }
+
+    public long getPlaytimeIntervalMillis() {
+        return playtimeIntervalMillis;
+    }
+
+    public int getPlaytimeAmount() {
+        return playtimeAmount;
+    }
+
+    // ---- Kill rewards ----
+
+    public boolean isKillsEnabled() {
+        return killsEnabled;
+    }
+
+    public int getKillAmount() {
+        return killAmount;
+    }
+
+    public long getKillCooldownMillis() {
+        return killCooldownMillis;
+    }
+
+    // ---- AFK ----
+
+    public boolean isAfkEnabled() {
+        return afkEnabled;
+    }
+
+    public int getAfkIntervalSeconds() {
+        return afkIntervalSeconds;
+    }
+
+    public int getAfkAmount() {
+        return afkAmount;
+    }
+
+    public int getAfkTeleportDelay() {
+        return afkTeleportDelay;
+    }
+
+    /**
+     * Seconds between writes of AFK players' accrued time
+     */
+    public int getAfkCheckpointSeconds() {
+        return afkCheckpointSeconds;
+    }
+
+    /**
+     * Squared movement tolerance, to compare against {@code distanceSquared} directly
+     */
+    public double getAfkMovementToleranceSquared() {
+        return afkMovementToleranceSquared;
+    }
+
+    public boolean isWorldGuardEnabled() {
+        return worldGuardEnabled;
+    }
+
+    public String getWorldGuardRegion() {
+        return worldGuardRegion;
+    }
+
+    public boolean isWorldGuardRequireRegion() {
+        return worldGuardRequireRegion;
+    }
+
+    public boolean isWorldGuardAutoStart() {
+        return worldGuardAutoStart;
+    }
+
+    public boolean isWorldGuardAutoStop() {
+        return worldGuardAutoStop;
+    }
+
+    public boolean isCrossServerEnabled() {
+        return crossServerEnabled;
+    }
+
+    public List<String> getCrossServerServers() {
+        return crossServerServers;
+    }
+
+    public String getCrossServerFallback() {
+        return crossServerFallback;
+    }
+
+    public boolean isCrossServerReturnToOrigin() {
+        return crossServerReturnToOrigin;
+    }
+
+    // ---- Vault ----
+
+    public boolean isVaultEnabled() {
+        return vaultEnabled;
+    }
+
+    public int getVaultOfflineCacheSize() {
+        return vaultOfflineCacheSize;
+    }
+
+    public long getVaultOfflineCacheTtlMillis() {
+        return vaultOfflineCacheTtlMillis;
+    }
+
+    // ---- Store ----
+
+    /**
+     * Shop inventory size, a multiple of 9 between 9 and 54
+     */
+    public int getStoreSize() {
+        return storeSize;
+    }
+}
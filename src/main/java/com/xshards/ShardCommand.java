@@ -1,13 +1,23 @@
 package com.xshards;
 
 import com.xshards.ShardManager;
+import com.xshards.api.ShardBalanceChangeEvent;
 import com.xshards.utils.MessageManager;
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Command for checking and managing shards
  */
@@ -52,21 +62,15 @@ public class ShardCommand implements CommandExecutor {
         }
 
         // Invalid usage
-        player.sendMessage(messages.getPrefix() + "§cKullanım: /shards veya /shards give <oyuncu> <miktar>");
+        player.sendMessage(messages.getPrefix() + "§cKullanım: /shards veya /shards give <oyuncu[,oyuncu...]> <miktar>");
         return true;
     }
 
     /**
-     * Handle giving shards to a player
+     * Handle giving shards to one or more comma separated players. Online players get the
+     * shards right away; offline players are credited in the database without being loaded.
      */
-    private boolean handleGiveCommand(CommandSender sender, String targetName, String amountStr) {
-        // Find target player
-        Player target = Bukkit.getPlayer(targetName);
-        if (target == null) {
-            messages.sendPlayerNotFound(sender);
-            return true;
-        }
-
+    private boolean handleGiveCommand(CommandSender sender, String targetNames, String amountStr) {
         // Parse amount
         int amount;
         try {
@@ -76,14 +80,72 @@ public class ShardCommand implements CommandExecutor {
             return true;
         }
 
-        // Give shards
-        shardManager.addShards(target, amount);
-
-        // Send messages
         String senderName = sender instanceof Player ? ((Player) sender).getName() : "Konsol";
-        messages.sendShardsGiven(sender, amount, target.getName());
-        messages.sendShardsReceived(target, amount, senderName);
+        Set<String> offline = new LinkedHashSet<>();
+        for (String targetName : targetNames.split(",")) {
+            if (targetName.isEmpty()) {
+                continue;
+            }
+
+            Player target = Bukkit.getPlayerExact(targetName);
+            if (target == null) {
+                offline.add(targetName);
+                continue;
+            }
+
+            // Give shards
+            if (!shardManager.addShards(target, amount, ShardBalanceChangeEvent.Cause.ADMIN)) {
+                sender.sendMessage(messages.getPrefix() + ChatColor.RED + target.getName()
+                        + ": İşlem başka bir eklenti tarafından iptal edildi.");
+                continue;
+            }
 
+            // Send messages
+            messages.sendShardsGiven(sender, amount, target.getName());
+            messages.sendShardsReceived(target, amount, senderName);
+        }
+
+        if (!offline.isEmpty()) {
+            giveOffline(sender, offline, amount);
+        }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Credit offline players by name, with a single summary once every write is done
+     */
+    private void giveOffline(CommandSender sender, Set<String> names, int amount) {
+        shardManager.resolvePlayers(names).thenCompose(uuids -> {
+            List<String> unknown = new ArrayList<>();
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (String name : names) {
+                UUID uuid = uuids.get(name.toLowerCase(Locale.ROOT));
+                if (uuid == null) {
+                    unknown.add(name);
+                } else {
+                    writes.add(shardManager.addShards(uuid, amount));
+                }
+            }
+
+            return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenRun(() -> {
+                if (names.size() == 1 && unknown.isEmpty()) {
+                    messages.sendShardsGiven(sender, amount, names.iterator().next());
+                } else if (!writes.isEmpty()) {
+                    sender.sendMessage(messages.getPrefix() + ChatColor.GREEN + writes.size()
+                            + " çevrimdışı oyuncuya " + amount + " shard verildi.");
+                }
+
+                if (names.size() == 1 && !unknown.isEmpty()) {
+                    messages.sendPlayerNotFound(sender);
+                } else if (!unknown.isEmpty()) {
+                    sender.sendMessage(messages.getPrefix() + ChatColor.RED + "Bulunamayan oyuncular: "
+                            + String.join(", ", unknown));
+                }
+            });
+        }).exceptionally(e -> {
+            Bukkit.getLogger().severe("Failed to give shards to offline players: " + e.getMessage());
+            sender.sendMessage(messages.getPrefix() + ChatColor.RED + "Çevrimdışı oyunculara shard verilemedi.");
+            return null;
+        });
+    }
+}
@@ -0,0 +1,505 @@
+package com.xshards;
+
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.ServicePriority;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Vault economy provider backed by shards.
+ *
+ * Loaded (online) players are answered from the ShardManager cache. Vault is synchronous, so
+ * offline balances come from a small bounded cache filled in the background: a miss reports 0
+ * and starts loading the balance for the next call. Offline withdrawals are charged against
+ * the database before they report success, which only async callers may wait for. Only touch
+ * this class when Vault is installed.
+ */
+public class ShardEconomy implements Economy {
+
+    private final Xshards plugin;
+    private final ShardManager shardManager;
+    private final int offlineCacheSize;
+    private final long offlineCacheTtlMillis;
+
+    // Offline balances, least recently used first. Guarded by itself.
+    private final Map<UUID, OfflineBalance> offlineBalances;
+    private final Set<UUID> loading = ConcurrentHashMap.newKeySet();
+
+    // Statistics
+    private final LongAdder onlineHits = new LongAdder();
+    private final LongAdder offlineHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ShardEconomy(Xshards plugin, ShardManager shardManager) {
+        this.plugin = plugin;
+        this.shardManager = shardManager;
+        this.offlineCacheSize = plugin.getSettings().getVaultOfflineCacheSize();
+        this.offlineCacheTtlMillis = plugin.getSettings().getVaultOfflineCacheTtlMillis();
+        this.offlineBalances = new LinkedHashMap<UUID, OfflineBalance>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, OfflineBalance> eldest) {
+                return size() > offlineCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Register a provider with Vault's ServicesManager entry for Economy
+     */
+    public static ShardEconomy register(Xshards plugin, ShardManager shardManager) {
+        ShardEconomy economy = new ShardEconomy(plugin, shardManager);
+        plugin.getServer().getServicesManager().register(Economy.class, economy, plugin, ServicePriority.Normal);
+        return economy;
+    }
+
+    // ---- Balances ----
+
+    /**
+     * Current balance: from the shard cache if loaded, else from the offline cache, else
+     * null after starting a background load
+     */
+    private Integer balanceOf(UUID uuid) {
+        if (shardManager.isLoaded(uuid)) {
+            onlineHits.increment();
+            return shardManager.getCachedShards(uuid);
+        }
+
+        synchronized (offlineBalances) {
+            OfflineBalance cached = offlineBalances.get(uuid);
+            if (cached != null && !cached.isExpired()) {
+                offlineHits.increment();
+                return cached.shards;
+            }
+        }
+
+        misses.increment();
+        loadOffline(uuid);
+        return null;
+    }
+
+    private void loadOffline(UUID uuid) {
+        if (offlineCacheSize == 0 || !loading.add(uuid)) {
+            return;
+        }
+
+        shardManager.fetchShards(uuid).whenComplete((shards, error) -> {
+            loading.remove(uuid);
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not load the shard balance of " + uuid, error);
+                return;
+            }
+            // Players who logged in meanwhile are answered by the shard cache
+            if (!shardManager.isLoaded(uuid)) {
+                updateOffline(uuid, shards);
+            }
+        });
+    }
+
+    private void updateOffline(UUID uuid, int shards) {
+        synchronized (offlineBalances) {
+            offlineBalances.put(uuid, new OfflineBalance(shards));
+        }
+    }
+
+    private void forgetOffline(UUID uuid) {
+        synchronized (offlineBalances) {
+            offlineBalances.remove(uuid);
+        }
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player) {
+        Integer balance = balanceOf(player.getUniqueId());
+        return balance != null ? balance : 0;
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, double amount) {
+        Integer balance = balanceOf(player.getUniqueId());
+        return balance != null && balance >= toCharge(amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        int shards = toCharge(amount);
+        if (shards < 0) {
+            return new EconomyResponse(0, getBalance(player), ResponseType.FAILURE, "Cannot withdraw negative amounts");
+        }
+
+        UUID uuid = player.getUniqueId();
+        if (shardManager.isLoaded(uuid)) {
+            onlineHits.increment();
+            if (!shardManager.tryWithdraw(uuid, shards)) {
+                return new EconomyResponse(0, shardManager.getCachedShards(uuid), ResponseType.FAILURE, "Insufficient shards");
+            }
+            return new EconomyResponse(shards, shardManager.getCachedShards(uuid), ResponseType.SUCCESS, null);
+        }
+
+        // Offline: success is only reported once the stored balance has been charged, so the
+        // caller never hands out goods for shards that were not taken. Tick threads must not
+        // wait on the database, so they are refused; async callers wait for the commit.
+        Integer balance = balanceOf(uuid);
+        if (balance != null && balance < shards) {
+            return new EconomyResponse(0, balance, ResponseType.FAILURE, "Insufficient shards");
+        }
+        if (Bukkit.isPrimaryThread()) {
+            return new EconomyResponse(0, balance != null ? balance : 0, ResponseType.FAILURE,
+                    "Offline players can only be charged from an async task");
+        }
+
+        boolean withdrawn;
+        try {
+            withdrawn = shardManager.withdrawShards(uuid, shards).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().warning("Interrupted while charging " + shards + " shards from " + uuid
+                    + "; the charge may still be applied");
+            forgetOffline(uuid);
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, "Interrupted");
+        } catch (ExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not charge " + shards + " shards from " + uuid, e.getCause());
+            forgetOffline(uuid);
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, "Could not reach the database");
+        }
+
+        forgetOffline(uuid);
+        if (!withdrawn) {
+            return new EconomyResponse(0, balance != null ? balance : 0, ResponseType.FAILURE, "Insufficient shards");
+        }
+        return new EconomyResponse(shards, balance != null ? Math.max(0, balance - shards) : 0,
+                ResponseType.SUCCESS, null);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        int shards = toShards(amount);
+        if (shards < 0) {
+            return new EconomyResponse(0, getBalance(player), ResponseType.FAILURE, "Cannot deposit negative amounts");
+        }
+
+        UUID uuid = player.getUniqueId();
+        boolean loaded = shardManager.isLoaded(uuid);
+        CompletableFuture<Void> deposit = shardManager.addShards(uuid, shards);
+        if (deposit.isCompletedExceptionally()) {
+            // A ShardBalanceChangeEvent listener cancelled it, or the write was refused
+            return new EconomyResponse(0, getBalance(player), ResponseType.FAILURE, "Deposit refused");
+        }
+        deposit.whenComplete((ignored, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Could not deposit " + shards + " shards for " + uuid, error);
+                forgetOffline(uuid);
+            }
+        });
+
+        if (loaded) {
+            onlineHits.increment();
+            return new EconomyResponse(shards, shardManager.getCachedShards(uuid), ResponseType.SUCCESS, null);
+        }
+
+        double balance = 0;
+        synchronized (offlineBalances) {
+            OfflineBalance cached = offlineBalances.get(uuid);
+            if (cached != null) {
+                balance = cached.shards + shards;
+                offlineBalances.put(uuid, new OfflineBalance((int) balance));
+            }
+        }
+        return new EconomyResponse(shards, balance, ResponseType.SUCCESS, null);
+    }
+
+    /**
+     * Shards are whole numbers; fractions of a deposit are dropped
+     */
+    private static int toShards(double amount) {
+        return (int) Math.floor(amount);
+    }
+
+    /**
+     * Shards a charge costs; fractions round up so a charge never takes less than asked
+     */
+    private static int toCharge(double amount) {
+        return (int) Math.ceil(amount);
+    }
+
+    // ---- Statistics ----
+
+    public long getOnlineHits() {
+        return onlineHits.sum();
+    }
+
+    public long getOfflineHits() {
+        return offlineHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getOfflineCacheSize() {
+        synchronized (offlineBalances) {
+            return offlineBalances.size();
+        }
+    }
+
+    /**
+     * One-line summary of the cache state
+     */
+    public String describe() {
+        return String.format("online hits=%d, offline hits=%d, misses=%d, offline cached=%d/%d",
+                getOnlineHits(), getOfflineHits(), getMisses(), getOfflineCacheSize(), offlineCacheSize);
+    }
+
+    // ---- Name, world and account variants ----
+
+    /**
+     * Resolve a name without a blocking profile lookup. Unknown offline names are treated as
+     * having no account.
+     */
+    private static OfflinePlayer byName(String playerName) {
+        return playerName == null ? null : Bukkit.getPlayerExact(playerName);
+    }
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player) {
+        return true;
+    }
+
+    @Override
+    public boolean hasAccount(OfflinePlayer player, String worldName) {
+        return true;
+    }
+
+    @Override
+    public boolean hasAccount(String playerName) {
+        return byName(playerName) != null;
+    }
+
+    @Override
+    public boolean hasAccount(String playerName, String worldName) {
+        return hasAccount(playerName);
+    }
+
+    @Override
+    public double getBalance(String playerName) {
+        OfflinePlayer player = byName(playerName);
+        return player != null ? getBalance(player) : 0;
+    }
+
+    @Override
+    public double getBalance(String playerName, String world) {
+        return getBalance(playerName);
+    }
+
+    @Override
+    public double getBalance(OfflinePlayer player, String world) {
+        return getBalance(player);
+    }
+
+    @Override
+    public boolean has(String playerName, double amount) {
+        OfflinePlayer player = byName(playerName);
+        return player != null && has(player, amount);
+    }
+
+    @Override
+    public boolean has(String playerName, String worldName, double amount) {
+        return has(playerName, amount);
+    }
+
+    @Override
+    public boolean has(OfflinePlayer player, String worldName, double amount) {
+        return has(player, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(String playerName, double amount) {
+        OfflinePlayer player = byName(playerName);
+        return player != null ? withdrawPlayer(player, amount) : unknownPlayer();
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(String playerName, String worldName, double amount) {
+        return withdrawPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, String worldName, double amount) {
+        return withdrawPlayer(player, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(String playerName, double amount) {
+        OfflinePlayer player = byName(playerName);
+        return player != null ? depositPlayer(player, amount) : unknownPlayer();
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
+        return depositPlayer(playerName, amount);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, String worldName, double amount) {
+        return depositPlayer(player, amount);
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player) {
+        // Every player implicitly has a balance
+        return false;
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player, String worldName) {
+        return false;
+    }
+
+    @Override
+    public boolean createPlayerAccount(String playerName) {
+        return false;
+    }
+
+    @Override
+    public boolean createPlayerAccount(String playerName, String worldName) {
+        return false;
+    }
+
+    private static EconomyResponse unknownPlayer() {
+        return new EconomyResponse(0, 0, ResponseType.FAILURE, "Player is not online");
+    }
+
+    // ---- Provider info ----
+
+    @Override
+    public boolean isEnabled() {
+        return plugin.isEnabled();
+    }
+
+    @Override
+    public String getName() {
+        return "XShards";
+    }
+
+    @Override
+    public int fractionalDigits() {
+        return 0;
+    }
+
+    @Override
+    public String format(double amount) {
+        int shards = toShards(amount);
+        return shards + " " + (shards == 1 ? currencyNameSingular() : currencyNamePlural());
+    }
+
+    @Override
+    public String currencyNamePlural() {
+        return "shards";
+    }
+
+    @Override
+    public String currencyNameSingular() {
+        return "shard";
+    }
+
+    // ---- Banks are not supported ----
+
+    @Override
+    public boolean hasBankSupport() {
+        return false;
+    }
+
+    private static EconomyResponse noBanks() {
+        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, "XShards does not support banks");
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, String player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse deleteBank(String name) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankBalance(String name) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankHas(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankWithdraw(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse bankDeposit(String name, double amount) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, String playerName) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, String playerName) {
+        return noBanks();
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+
+    @Override
+    public List<String> getBanks() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * An offline balance and when it was read
+     */
+    private final class OfflineBalance {
+        private final int shards;
+        private final long loadedAt = System.currentTimeMillis();
+
+        OfflineBalance(int shards) {
+            this.shards = shards;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt >= offlineCacheTtlMillis;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.xshards;
 
+import com.xshards.api.ShardBalanceChangeEvent;
+import com.xshards.scheduler.TimingWheel;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDeathEvent;
@@ -7,21 +9,28 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Entity;
-import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 public class ShardListener implements Listener {
     private final ShardManager shardManager;
     private final Xshards plugin;
-    private final Map<UUID, Map<UUID, Long>> lastKillTimestamps = new HashMap<>();
-    private final Map<UUID, Long> lastEarnedTime = new HashMap<>();
+
+    private static final String KILL_COOLDOWN_FILE = "kill-cooldowns.dat";
+    private volatile KillCooldownStore killCooldowns;
+
+    // Playtime rewards are checked every second; 512 one-second slots cover about 8.5 minutes
+    private static final long REWARD_CHECK_TICKS = 20L;
+    private final TimingWheel<UUID> playtimeRewards = new TimingWheel<>(512, 1000L, System.currentTimeMillis());
 
     public ShardListener(ShardManager shardManager, Xshards plugin) {
         this.shardManager = shardManager;
         this.plugin = plugin;
+        this.killCooldowns = new KillCooldownStore(plugin.getSettings().getKillCooldownMillis());
+        loadKillCooldowns();
         startShardEarningTask();
     }
 
@@ -29,49 +38,66 @@ public class ShardListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         shardManager.loadPlayerData(player);
+        scheduleNextReward(player.getUniqueId(), System.currentTimeMillis());
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
-        shardManager.savePlayerData(player);
+        shardManager.unloadPlayerData(player);
+        playtimeRewards.cancel(player.getUniqueId());
     }
 
+    /**
+     * Hand out playtime rewards. Every online player sits in the wheel at their next reward
+     * time, so each run only touches the players that are due.
+     */
     private void startShardEarningTask() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Check if playtime earning is enabled
-                if (!plugin.getConfig().getBoolean("earning.playtime.enabled", true)) {
-                    return;
+        long now = System.currentTimeMillis();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            scheduleNextReward(player.getUniqueId(), now);
+        }
+
+        plugin.getScheduler().runGlobalTimer(() -> {
+            // Check if playtime earning is enabled
+            Settings settings = plugin.getSettings();
+            if (!settings.isPlaytimeEnabled()) {
+                return;
+            }
+
+            long currentTime = System.currentTimeMillis();
+            List<UUID> due = playtimeRewards.advance(currentTime);
+            if (due.isEmpty()) {
+                return;
+            }
+
+            int shards = settings.getPlaytimeAmount();
+            for (UUID playerId : due) {
+                Player player = plugin.getServer().getPlayer(playerId);
+                if (player == null) {
+                    continue;
                 }
 
-                long earnShardTime = plugin.getConfig().getLong("earning.playtime.interval", 3600000);
-                int shards = plugin.getConfig().getInt("earning.playtime.amount", 3);
-
-                for (Player player : plugin.getServer().getOnlinePlayers()) {
-                    UUID playerId = player.getUniqueId();
-                    long currentTime = System.currentTimeMillis();
-
-                    if (lastEarnedTime.containsKey(playerId)) {
-                        long lastTime = lastEarnedTime.get(playerId);
-                        if ((currentTime - lastTime) >= earnShardTime) {
-                            shardManager.addShards(player, shards);
-                            player.sendMessage("§aYou earned " + shards + " shards for staying online!");
-                            lastEarnedTime.put(playerId, currentTime);
-                        }
-                    } else {
-                        lastEarnedTime.put(playerId, currentTime);
+                // Pay out on the player's region thread, where event listeners can touch the player
+                plugin.getScheduler().runAtEntity(player, () -> {
+                    if (shardManager.addShards(player, shards, ShardBalanceChangeEvent.Cause.PLAYTIME)) {
+                        player.sendMessage("§aYou earned " + shards + " shards for staying online!");
                     }
-                }
+                }, null);
+                playtimeRewards.schedule(playerId, currentTime + settings.getPlaytimeIntervalMillis());
             }
-        }.runTaskTimer(plugin, 0, 1200); // Runs every minute
+        }, REWARD_CHECK_TICKS, REWARD_CHECK_TICKS);
+    }
+
+    private void scheduleNextReward(UUID playerId, long now) {
+        playtimeRewards.schedule(playerId, now + plugin.getSettings().getPlaytimeIntervalMillis());
     }
 
     @EventHandler
     public void onPlayerKill(EntityDeathEvent event) {
         // Check if kill earning is enabled
-        if (!plugin.getConfig().getBoolean("earning.kills.enabled", true)) {
+        Settings settings = plugin.getSettings();
+        if (!settings.isKillsEnabled()) {
             return;
         }
 
@@ -85,20 +111,69 @@ public class ShardListener implements Listener {
                 UUID killedUUID = killedPlayer.getUniqueId();
 
                 long currentTime = System.currentTimeMillis();
-                Map<UUID, Long> killerKillTimestamps = lastKillTimestamps.getOrDefault(killerUUID, new HashMap<>());
+                KillCooldownStore cooldowns = getKillCooldowns(settings);
+                if (cooldowns.tryRecord(killerUUID, killedUUID, currentTime)) {
+                    int shardsPerKill = settings.getKillAmount();
+                    if (shardManager.addShards(killer, shardsPerKill, ShardBalanceChangeEvent.Cause.KILL)) {
+                        killer.sendMessage("§aYou earned " + shardsPerKill + " shards for killing " + killedPlayer.getName());
+                    }
+                } else {
+                    killer.sendMessage("§cYou can only earn shards from killing " + killedPlayer.getName() +
+                            " once every " + formatCooldown(cooldowns.getCooldownMillis()) + ".");
+                }
+            }
+        }
+    }
 
-                if (!killerKillTimestamps.containsKey(killedUUID) || 
-                    (currentTime - killerKillTimestamps.get(killedUUID) >= 24 * 60 * 60 * 1000)) {
-                    int shardsPerKill = plugin.getConfig().getInt("earning.kills.amount", 10);
-                    shardManager.addShards(killer, shardsPerKill);
-                    killer.sendMessage("§aYou earned " + shardsPerKill + " shards for killing " + killedPlayer.getName());
+    /**
+     * Kill cooldowns, rebuilt with the surviving entries if the configured cooldown changed
+     */
+    public KillCooldownStore getKillCooldowns() {
+        return getKillCooldowns(plugin.getSettings());
+    }
 
-                    killerKillTimestamps.put(killedUUID, currentTime);
-                    lastKillTimestamps.put(killerUUID, killerKillTimestamps);
-                } else {
-                    killer.sendMessage("§cYou can only earn shards from killing " + killedPlayer.getName() + " once every 24 hours.");
+    private KillCooldownStore getKillCooldowns(Settings settings) {
+        long cooldown = settings.getKillCooldownMillis();
+        KillCooldownStore store = killCooldowns;
+        if (store.getCooldownMillis() != cooldown) {
+            synchronized (this) {
+                store = killCooldowns;
+                if (store.getCooldownMillis() != cooldown) {
+                    store = store.withCooldown(cooldown, System.currentTimeMillis());
+                    killCooldowns = store;
                 }
             }
         }
+        return store;
+    }
+
+    /**
+     * Persist kill cooldowns so they survive a restart
+     */
+    public void saveKillCooldowns() {
+        try {
+            killCooldowns.save(new File(plugin.getDataFolder(), KILL_COOLDOWN_FILE), System.currentTimeMillis());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save kill cooldowns: " + e.getMessage());
+        }
+    }
+
+    private void loadKillCooldowns() {
+        try {
+            int restored = killCooldowns.load(new File(plugin.getDataFolder(), KILL_COOLDOWN_FILE), System.currentTimeMillis());
+            if (restored > 0) {
+                plugin.getLogger().info("Restored " + restored + " kill cooldowns");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to load kill cooldowns: " + e.getMessage());
+        }
+    }
+
+    private static String formatCooldown(long millis) {
+        long minutes = millis / 60000L;
+        if (minutes >= 60 && minutes % 60 == 0) {
+            return (minutes / 60) + " hours";
+        }
+        return Math.max(1L, minutes) + " minutes";
     }
-}
\ No newline at end of file
+}
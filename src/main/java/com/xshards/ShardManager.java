@@ -1,18 +1,31 @@
 package com.xshards;
 
 import com.xshards.DatabaseManager;
+import com.xshards.api.ShardBalanceChangeEvent;
 import com.xshards.scheduler.SchedulerAdapter;
+import com.xshards.storage.BalanceRepository;
+import com.xshards.storage.StorageQuery;
 import com.xshards.utils.MessageManager;
+import com.xshards.utils.UuidLongMap;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
@@ -20,165 +33,966 @@ import java.util.logging.Level;
  */
 public class ShardManager {
 
+    // Orders batched balance writes on one storage lane, so they commit and complete in the
+    // order they were made
+    private static final String BALANCE_WRITE_KEY = "player_balances";
+
     private final DatabaseManager databaseManager;
     private final SchedulerAdapter scheduler;
     private final MessageManager messages;
 
-    // Cache for player shard data
-    private final Map<UUID, Integer> shardCache;
+    // Cache for player shard data. Only read on tick threads; the database is only touched on
+    // the storage executor.
+    private final UuidLongMap shardCache;
+
+    // Players whose stored balance has been merged into the cache
+    private final Set<UUID> loadedPlayers;
+
+    // Loads in flight, so repeated cache misses share one query
+    private final Map<UUID, CompletableFuture<Integer>> pendingLoads;
+
+    // Players whose balance was set outright before their stored balance arrived
+    private final Set<UUID> overriddenBeforeLoad;
 
     // Pending shop purchases
     private final Map<UUID, Object> pendingPurchases;
 
+    // Write-behind: balances changed since the last flush (UUID -> player name)
+    private final boolean writeBehind;
+    private final int maxBatchSize;
+    private final Map<UUID, String> dirtyBalances;
+    private ScheduledTask flushTask;
+
+    // Delta mode: changes are persisted as increments and the stored balance is read back, so
+    // several servers can share one database. Both maps are only changed while holding the
+    // player's shardCache stripe.
+    private final boolean deltaWrites;
+    private final Map<UUID, Integer> pendingDeltas;
+    private final Map<UUID, Integer> pendingSets;
+
     public ShardManager(org.bukkit.plugin.Plugin plugin, DatabaseManager databaseManager,
                         SchedulerAdapter scheduler, MessageManager messages) {
         this.databaseManager = databaseManager;
         this.scheduler = scheduler;
         this.messages = messages;
-        this.shardCache = new ConcurrentHashMap<>();
+        this.shardCache = new UuidLongMap();
+        this.loadedPlayers = ConcurrentHashMap.newKeySet();
+        this.pendingLoads = new ConcurrentHashMap<>();
+        this.overriddenBeforeLoad = ConcurrentHashMap.newKeySet();
         this.pendingPurchases = new ConcurrentHashMap<>();
+        this.dirtyBalances = new ConcurrentHashMap<>();
+        this.pendingDeltas = new ConcurrentHashMap<>();
+        this.pendingSets = new ConcurrentHashMap<>();
+
+        this.writeBehind = plugin.getConfig().getBoolean("storage.write-behind.enabled", false);
+        this.maxBatchSize = Math.max(1, plugin.getConfig().getInt("storage.write-behind.max-batch-size", 500));
+        this.deltaWrites = plugin.getConfig().getBoolean("storage.delta-writes.enabled", false);
 
         loadAllPlayerData();
+
+        if (writeBehind) {
+            long intervalTicks = Math.max(1, plugin.getConfig().getLong("storage.write-behind.flush-interval", 5)) * 20L;
+            flushTask = scheduler.runAsyncTimer(this::flushDirtyBalances, intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Add shards to a player on behalf of staff or another plugin
+     */
+    public boolean addShards(Player player, int amount) {
+        return addShards(player, amount, ShardBalanceChangeEvent.Cause.ADMIN);
     }
 
     /**
      * Add shards to a player
+     *
+     * @return false if a ShardBalanceChangeEvent listener cancelled the change
      */
-    public void addShards(Player player, int amount) {
-        UUID uuid = player.getUniqueId();
+    public boolean addShards(Player player, int amount, ShardBalanceChangeEvent.Cause cause) {
+        if (!isChangeAllowed(player, cause, amount, false)) {
+            return false;
+        }
 
-        // Update cache
-        int current = shardCache.getOrDefault(uuid, 0);
-        int newAmount = current + amount;
-        shardCache.put(uuid, newAmount);
+        applyDelta(player.getUniqueId(), amount);
 
         // Send message if amount is positive
         if (amount > 0) {
             messages.sendShardsEarned(player, amount);
         }
 
-        // Save asynchronously
-        scheduler.runAsync(() -> savePlayerData(player));
+        scheduleSave(player.getUniqueId(), player.getName());
+        return true;
     }
 
     /**
-     * Get player's shard count
+     * Fire a ShardBalanceChangeEvent, unless nothing listens for it
+     *
+     * @param value amount to add, or the new balance if absolute
+     * @return false if a listener cancelled the change
      */
-    public int getShards(Player player) {
-        UUID uuid = player.getUniqueId();
+    private boolean isChangeAllowed(Player player, ShardBalanceChangeEvent.Cause cause, int value, boolean absolute) {
+        if (!ShardBalanceChangeEvent.hasListeners()) {
+            return true;
+        }
 
-        // Check cache first
-        if (shardCache.containsKey(uuid)) {
-            return shardCache.get(uuid);
+        int oldBalance = getCachedShards(player.getUniqueId());
+        ShardBalanceChangeEvent event = new ShardBalanceChangeEvent(player, cause, oldBalance,
+                absolute ? value : oldBalance + value);
+        Bukkit.getPluginManager().callEvent(event);
+        return !event.isCancelled();
+    }
+
+    /**
+     * Fire a ShardBalanceChangeEvent if the player is online. Offline balances change without one.
+     *
+     * @return false if a listener cancelled the change
+     */
+    private boolean isChangeAllowed(UUID uuid, ShardBalanceChangeEvent.Cause cause, int value, boolean absolute) {
+        if (!ShardBalanceChangeEvent.hasListeners()) {
+            return true;
         }
 
-        // Load from database
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT shards FROM player_shards WHERE uuid = ?")) {
+        Player player = Bukkit.getPlayer(uuid);
+        return player == null || isChangeAllowed(player, cause, value, absolute);
+    }
+
+    /**
+     * Add to a cached balance, recording the change for delta mode
+     */
+    private void applyDelta(UUID uuid, int amount) {
+        if (deltaWrites) {
+            shardCache.compute(uuid, (present, current) -> {
+                if (loadedPlayers.contains(uuid)) {
+                    pendingDeltas.merge(uuid, amount, Integer::sum);
+                }
+                return current + amount;
+            });
+        } else {
+            shardCache.addAndGet(uuid, amount);
+        }
+    }
 
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
+    /**
+     * Take shards from an online player, e.g. for a purchase, after firing a
+     * ShardBalanceChangeEvent
+     *
+     * @return false if the balance is too low or the change was cancelled
+     */
+    public boolean tryWithdraw(Player player, int amount, ShardBalanceChangeEvent.Cause cause) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        return isChangeAllowed(player, cause, -amount, false) && withdrawLoaded(player.getUniqueId(), amount);
+    }
 
-            if (rs.next()) {
-                int shards = rs.getInt("shards");
-                shardCache.put(uuid, shards);
-                return shards;
+    /**
+     * Atomically take shards from a loaded balance if it holds at least the amount. Fires a
+     * ShardBalanceChangeEvent with cause ADMIN if the player is online.
+     *
+     * @return false if the balance is not loaded or too low, or the change was cancelled;
+     *         nothing is taken then
+     */
+    public boolean tryWithdraw(UUID uuid, int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        return isChangeAllowed(uuid, ShardBalanceChangeEvent.Cause.ADMIN, -amount, false)
+                && withdrawLoaded(uuid, amount);
+    }
+
+    /**
+     * Take shards from a loaded balance without firing an event
+     */
+    private boolean withdrawLoaded(UUID uuid, int amount) {
+        if (!loadedPlayers.contains(uuid)) {
+            return false;
+        }
+
+        boolean withdrawn;
+        if (deltaWrites) {
+            // The pending delta has to change in the same critical section as the balance
+            boolean[] taken = new boolean[1];
+            shardCache.computeIfPresent(uuid, current -> {
+                if (current < amount) {
+                    return current;
+                }
+                pendingDeltas.merge(uuid, -amount, Integer::sum);
+                taken[0] = true;
+                return current - amount;
+            });
+            withdrawn = taken[0];
+        } else {
+            withdrawn = false;
+            while (true) {
+                long current = shardCache.get(uuid, Long.MIN_VALUE);
+                if (current == Long.MIN_VALUE || current < amount) {
+                    break;
+                }
+                if (shardCache.compareAndSet(uuid, current, current - amount)) {
+                    withdrawn = true;
+                    break;
+                }
             }
-        } catch (SQLException e) {
-            Bukkit.getLogger().warning("Error getting player shards: " + e.getMessage());
         }
 
-        // Default to 0
-        shardCache.put(uuid, 0);
-        return 0;
+        if (withdrawn) {
+            scheduleSave(uuid, nameOf(uuid));
+        }
+        return withdrawn;
     }
 
     /**
-     * Set player's shard count
+     * Atomically move shards between two loaded balances. The sender is charged first, so
+     * shards are never created; they are briefly in neither balance. Online players get a
+     * ShardBalanceChangeEvent with cause ADMIN each.
+     *
+     * @return false if either balance is not loaded, the sender has too few shards or the
+     *         change was cancelled
      */
-    public void setShards(Player player, int amount) {
-        UUID uuid = player.getUniqueId();
-        shardCache.put(uuid, Math.max(0, amount));
-        scheduler.runAsync(() -> savePlayerData(player));
+    public boolean transfer(UUID from, UUID to, int amount) {
+        if (from.equals(to)) {
+            return amount >= 0 && loadedPlayers.contains(from) && getCachedShards(from) >= amount;
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        if (!loadedPlayers.contains(to) || !isTransferAllowed(from, to, amount) || !withdrawLoaded(from, amount)) {
+            return false;
+        }
+
+        applyDelta(to, amount);
+        scheduleSave(to, nameOf(to));
+        return true;
     }
 
     /**
-     * Save player data to database
+     * Fire the sender's and the receiver's ShardBalanceChangeEvent for a transfer
      */
-    public void savePlayerData(Player player) {
-        UUID uuid = player.getUniqueId();
-        String playerName = player.getName();
-        int shards = shardCache.getOrDefault(uuid, 0);
+    private boolean isTransferAllowed(UUID from, UUID to, int amount) {
+        return isChangeAllowed(from, ShardBalanceChangeEvent.Cause.ADMIN, -amount, false)
+                && isChangeAllowed(to, ShardBalanceChangeEvent.Cause.ADMIN, amount, false);
+    }
+
+    /**
+     * Set a loaded balance only if it still holds the expected value. Fires a
+     * ShardBalanceChangeEvent with cause ADMIN if the player is online.
+     *
+     * @return false if the balance is not loaded or has changed, or the change was cancelled
+     */
+    public boolean compareAndSet(UUID uuid, int expected, int update) {
+        if (!loadedPlayers.contains(uuid)
+                || !isChangeAllowed(uuid, ShardBalanceChangeEvent.Cause.ADMIN, update, true)) {
+            return false;
+        }
+
+        boolean set;
+        if (deltaWrites) {
+            boolean[] swapped = new boolean[1];
+            shardCache.computeIfPresent(uuid, current -> {
+                if (current != expected) {
+                    return current;
+                }
+                pendingDeltas.merge(uuid, update - expected, Integer::sum);
+                swapped[0] = true;
+                return update;
+            });
+            set = swapped[0];
+        } else {
+            set = shardCache.compareAndSet(uuid, expected, update);
+        }
+
+        if (set) {
+            scheduleSave(uuid, nameOf(uuid));
+        }
+        return set;
+    }
+
+    /**
+     * Get a balance whether or not the player is loaded: from the cache if it is, otherwise
+     * straight from the database without caching it. Players without a row have 0.
+     */
+    public CompletableFuture<Integer> fetchShards(UUID uuid) {
+        if (loadedPlayers.contains(uuid)) {
+            return CompletableFuture.completedFuture(getCachedShards(uuid));
+        }
+        return databaseManager.read(uuid, session -> session.balances().find(uuid))
+                .thenApply(stored -> stored != null ? stored : 0);
+    }
+
+    /**
+     * Get many balances, reading every player that is not loaded in one query
+     */
+    public CompletableFuture<Map<UUID, Integer>> fetchShards(Collection<UUID> uuids) {
+        Map<UUID, Integer> balances = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (loadedPlayers.contains(uuid)) {
+                balances.put(uuid, getCachedShards(uuid));
+            } else {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(balances);
+        }
+
+        return databaseManager.read(null, session -> session.balances().findAll(missing)).thenApply(stored -> {
+            for (UUID uuid : missing) {
+                balances.put(uuid, stored.getOrDefault(uuid, 0));
+            }
+            return balances;
+        });
+    }
+
+    /**
+     * Add shards whether or not the player is loaded. A loaded balance changes in the cache,
+     * anything else with one statement against the database. No message is sent. Online
+     * players get a ShardBalanceChangeEvent with cause ADMIN first.
+     *
+     * @return a future failed with IllegalStateException if a listener cancelled the change
+     */
+    public CompletableFuture<Void> addShards(UUID uuid, int amount) {
+        if (!isChangeAllowed(uuid, ShardBalanceChangeEvent.Cause.ADMIN, amount, false)) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "Adding " + amount + " shards to " + uuid + " was cancelled"));
+        }
+        return addShardsUnchecked(uuid, amount);
+    }
+
+    /**
+     * Add shards whether or not the player is loaded, without firing an event
+     */
+    private CompletableFuture<Void> addShardsUnchecked(UUID uuid, int amount) {
+        String playerName = nameOf(uuid);
+        return applyLoadedOrStored(uuid, () -> {
+            applyDelta(uuid, amount);
+            scheduleSave(uuid, playerName);
+            return null;
+        }, session -> {
+            session.balances().addAll(Collections.singletonMap(uuid, amount),
+                    Collections.singletonMap(uuid, playerName), 1);
+            return null;
+        });
+    }
+
+    /**
+     * Add shards to a player by name, whether or not they are online. Offline names are
+     * resolved through the stored balances.
+     *
+     * @return false if no player with that name is known
+     */
+    public CompletableFuture<Boolean> addShards(String playerName, int amount) {
+        return resolvePlayers(Collections.singletonList(playerName)).thenCompose(uuids -> {
+            UUID uuid = uuids.get(playerName.toLowerCase(Locale.ROOT));
+            if (uuid == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return addShards(uuid, amount).thenApply(ignored -> true);
+        });
+    }
+
+    /**
+     * Resolve player names to UUIDs: online players directly, everyone else with one query on
+     * the player_name index
+     *
+     * @return UUID per name, keyed by the name in lower case; unknown names are left out
+     */
+    public CompletableFuture<Map<String, UUID>> resolvePlayers(Collection<String> playerNames) {
+        Map<String, UUID> uuids = new HashMap<>();
+        List<String> offline = new ArrayList<>();
+        for (String name : playerNames) {
+            Player player = Bukkit.getPlayerExact(name);
+            if (player != null) {
+                uuids.put(name.toLowerCase(Locale.ROOT), player.getUniqueId());
+            } else {
+                offline.add(name);
+            }
+        }
+        if (offline.isEmpty()) {
+            return CompletableFuture.completedFuture(uuids);
+        }
+
+        return databaseManager.read(null, session -> session.balances().findUuidsByName(offline)).thenApply(stored -> {
+            uuids.putAll(stored);
+            return uuids;
+        });
+    }
+
+    /**
+     * Withdraw shards whether or not the player is loaded, with the same guarantee and event
+     * as {@link #tryWithdraw}
+     */
+    public CompletableFuture<Boolean> withdrawShards(UUID uuid, int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        if (!isChangeAllowed(uuid, ShardBalanceChangeEvent.Cause.ADMIN, -amount, false)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return withdrawShardsUnchecked(uuid, amount);
+    }
+
+    /**
+     * Withdraw shards whether or not the player is loaded, without firing an event
+     */
+    private CompletableFuture<Boolean> withdrawShardsUnchecked(UUID uuid, int amount) {
+        return applyLoadedOrStored(uuid, () -> withdrawLoaded(uuid, amount),
+                session -> session.balances().withdraw(uuid, amount));
+    }
+
+    /**
+     * Add shards to many players whether or not they are loaded. Loaded balances change in the
+     * cache, all others in one transaction. Online players get a ShardBalanceChangeEvent with
+     * cause ADMIN first.
+     *
+     * @return a future failed with IllegalStateException if a listener cancelled any of the
+     *         changes; nothing is added then
+     */
+    public CompletableFuture<Void> addShards(Map<UUID, Integer> amounts) {
+        for (Map.Entry<UUID, Integer> entry : amounts.entrySet()) {
+            if (!isChangeAllowed(entry.getKey(), ShardBalanceChangeEvent.Cause.ADMIN, entry.getValue(), false)) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "Adding " + entry.getValue() + " shards to " + entry.getKey() + " was cancelled"));
+            }
+        }
+
+        List<CompletableFuture<?>> changes = new ArrayList<>();
+        Map<UUID, Integer> stored = new HashMap<>();
+        Map<UUID, String> names = new HashMap<>();
+        changes.add(databaseManager.write(amounts.keySet(), () -> {
+            for (Map.Entry<UUID, Integer> entry : amounts.entrySet()) {
+                UUID uuid = entry.getKey();
+                int amount = entry.getValue();
+                CompletableFuture<Void> cached = applyIfLoaded(uuid, () -> {
+                    applyDelta(uuid, amount);
+                    scheduleSave(uuid, nameOf(uuid));
+                    return null;
+                });
+                if (cached != null) {
+                    changes.add(cached);
+                } else {
+                    stored.put(uuid, amount);
+                    names.put(uuid, nameOf(uuid));
+                }
+            }
+            return stored.isEmpty() ? null : session -> session.balances().addAll(stored, names, maxBatchSize);
+        }));
+        return CompletableFuture.allOf(changes.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Withdraw shards from many players whether or not they are loaded, each with the same
+     * guarantee and event as {@link #tryWithdraw}. Loaded balances are charged in the cache,
+     * all others in one transaction.
+     *
+     * @return per player, whether the shards were taken
+     */
+    public CompletableFuture<Map<UUID, Boolean>> withdrawShards(Map<UUID, Integer> amounts) {
+        for (int amount : amounts.values()) {
+            if (amount < 0) {
+                throw new IllegalArgumentException("Amount must not be negative: " + amount);
+            }
+        }
+
+        Map<UUID, Boolean> results = new ConcurrentHashMap<>();
+        Map<UUID, Integer> allowed = new HashMap<>();
+        for (Map.Entry<UUID, Integer> entry : amounts.entrySet()) {
+            if (isChangeAllowed(entry.getKey(), ShardBalanceChangeEvent.Cause.ADMIN, -entry.getValue(), false)) {
+                allowed.put(entry.getKey(), entry.getValue());
+            } else {
+                results.put(entry.getKey(), false);
+            }
+        }
+
+        List<CompletableFuture<?>> changes = new ArrayList<>();
+        Map<UUID, Integer> stored = new HashMap<>();
+        Map<UUID, Boolean> charged = new HashMap<>();
+        CompletableFuture<Void> write = databaseManager.write(allowed.keySet(), () -> {
+            for (Map.Entry<UUID, Integer> entry : allowed.entrySet()) {
+                UUID uuid = entry.getKey();
+                int amount = entry.getValue();
+                CompletableFuture<Boolean> cached = applyIfLoaded(uuid, () -> withdrawLoaded(uuid, amount));
+                if (cached != null) {
+                    changes.add(cached.thenAccept(withdrawn -> results.put(uuid, withdrawn)));
+                } else {
+                    stored.put(uuid, amount);
+                }
+            }
+            return stored.isEmpty() ? null : session -> {
+                charged.clear();
+                for (Map.Entry<UUID, Integer> entry : stored.entrySet()) {
+                    charged.put(entry.getKey(), session.balances().withdraw(entry.getKey(), entry.getValue()));
+                }
+            };
+        });
+        changes.add(write.thenRun(() -> results.putAll(charged)));
+
+        return CompletableFuture.allOf(changes.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> new HashMap<>(results));
+    }
+
+    /**
+     * Apply an operation to the cache if the player is loaded or being loaded. Only for
+     * players whose key is held by a write, so no load can start reading before it commits.
+     *
+     * @return null if the player is neither loaded nor loading
+     */
+    private <T> CompletableFuture<T> applyIfLoaded(UUID uuid, Supplier<T> cached) {
+        if (loadedPlayers.contains(uuid)) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        CompletableFuture<Integer> load = pendingLoads.get(uuid);
+        if (load != null) {
+            return load.thenApply(balance -> cached.get());
+        }
+        // The load may have finished between the two checks
+        return loadedPlayers.contains(uuid) ? CompletableFuture.completedFuture(cached.get()) : null;
+    }
+
+    /**
+     * Transfer shards whether or not either player is loaded. If the receiver cannot be
+     * credited the sender is refunded. Events are fired as for {@link #transfer}.
+     */
+    public CompletableFuture<Boolean> transferShards(UUID from, UUID to, int amount) {
+        if (loadedPlayers.contains(from) && loadedPlayers.contains(to)) {
+            return CompletableFuture.completedFuture(transfer(from, to, amount));
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        if (!from.equals(to) && !isTransferAllowed(from, to, amount)) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return withdrawShardsUnchecked(from, amount).thenCompose(withdrawn -> {
+            if (!withdrawn) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return addShardsUnchecked(to, amount).handle((ignored, error) -> {
+                if (error == null) {
+                    return true;
+                }
+                Bukkit.getLogger().log(Level.SEVERE, "Could not credit " + amount + " shards to " + to
+                        + ", refunding " + from, error);
+                addShardsUnchecked(from, amount);
+                return false;
+            });
+        });
+    }
 
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = databaseManager.getStorageType().equals("mysql")
-                    ? "INSERT INTO player_shards (uuid, player_name, shards) VALUES (?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE player_name=VALUES(player_name), shards=VALUES(shards)"
-                    : "INSERT OR REPLACE INTO player_shards (uuid, player_name, shards) VALUES (?, ?, ?)";
+    /**
+     * Apply an operation to the cache if the player is loaded, otherwise to the database.
+     * The choice is made while holding the player's pendingLoads entry, so a load cannot
+     * start between the check and the write being queued: a later load reads after the
+     * write, and a load in flight is waited for and the operation applied to the cache.
+     */
+    private <T> CompletableFuture<T> applyLoadedOrStored(UUID uuid, Supplier<T> cached, StorageQuery<T> stored) {
+        if (loadedPlayers.contains(uuid)) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, uuid.toString());
-                stmt.setString(2, playerName);
-                stmt.setInt(3, shards);
-                stmt.executeUpdate();
+        AtomicReference<CompletableFuture<T>> result = new AtomicReference<>();
+        pendingLoads.compute(uuid, (key, load) -> {
+            if (load != null) {
+                result.set(load.thenApply(balance -> cached.get()));
+            } else if (!loadedPlayers.contains(uuid)) {
+                AtomicReference<T> value = new AtomicReference<>();
+                result.set(databaseManager.write(uuid, session -> value.set(stored.run(session)))
+                        .thenApply(ignored -> value.get()));
             }
-        } catch (SQLException e) {
-            Bukkit.getLogger().log(Level.SEVERE, "Could not save player data for " + playerName, e);
+            return load;
+        });
+
+        return result.get() != null ? result.get() : CompletableFuture.completedFuture(cached.get());
+    }
+
+    /**
+     * Cached balance of a loaded player, without starting a load. 0 if not loaded.
+     */
+    public int getCachedShards(UUID uuid) {
+        return (int) shardCache.get(uuid, 0);
+    }
+
+    /**
+     * Name to store with a balance: the online name, else the last known one
+     */
+    private String nameOf(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null) {
+            return player.getName();
         }
+        // An empty name keeps whatever name is stored
+        String name = Bukkit.getOfflinePlayer(uuid).getName();
+        return name != null ? name : "";
     }
 
     /**
-     * Load player data from database
+     * Get player's shard count from the cache. Never touches the database; a miss starts an
+     * asynchronous load and reports 0 until it completes.
      */
-    public void loadPlayerData(Player player) {
+    public int getShards(Player player) {
         UUID uuid = player.getUniqueId();
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT shards FROM player_shards WHERE uuid = ?")) {
+        if (!loadedPlayers.contains(uuid)) {
+            loadPlayerData(player);
+            return 0;
+        }
+        return getCachedShards(uuid);
+    }
+
+    /**
+     * Check if a player's stored balance is in the cache
+     */
+    public boolean isLoaded(UUID uuid) {
+        return loadedPlayers.contains(uuid);
+    }
 
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
+    /**
+     * Check if a player's stored balance is in the cache or being read into it. Stored balances
+     * of other players can be changed directly without the cache overwriting them.
+     */
+    public boolean isLoadedOrLoading(UUID uuid) {
+        return loadedPlayers.contains(uuid) || pendingLoads.containsKey(uuid);
+    }
 
-            if (rs.next()) {
-                int shards = rs.getInt("shards");
-                shardCache.put(uuid, shards);
+    /**
+     * Rows per batch for balance writes
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set player's shard count on behalf of staff or another plugin
+     */
+    public boolean setShards(Player player, int amount) {
+        return setShards(player, amount, ShardBalanceChangeEvent.Cause.ADMIN);
+    }
+
+    /**
+     * Set player's shard count
+     *
+     * @return false if a ShardBalanceChangeEvent listener cancelled the change
+     */
+    public boolean setShards(Player player, int amount, ShardBalanceChangeEvent.Cause cause) {
+        UUID uuid = player.getUniqueId();
+        int balance = Math.max(0, amount);
+        if (!isChangeAllowed(player, cause, balance, true)) {
+            return false;
+        }
+        shardCache.compute(uuid, (present, current) -> {
+            if (!loadedPlayers.contains(uuid)) {
+                overriddenBeforeLoad.add(uuid);
+            } else if (deltaWrites) {
+                // An explicit set replaces whatever is stored, including earlier deltas
+                pendingSets.put(uuid, balance);
+                pendingDeltas.remove(uuid);
+            }
+            return balance;
+        });
+        scheduleSave(uuid, player.getName());
+        return true;
+    }
+
+    /**
+     * Persist a balance change: mark it dirty for the next flush in write-behind mode,
+     * otherwise save it right away. Changes made before the stored balance is loaded are
+     * persisted once the load merges them.
+     */
+    private void scheduleSave(UUID uuid, String playerName) {
+        if (!loadedPlayers.contains(uuid)) {
+            return;
+        }
+
+        if (writeBehind) {
+            dirtyBalances.put(uuid, playerName);
+        } else {
+            savePlayerData(uuid, playerName);
+        }
+    }
+
+    /**
+     * Write all dirty balances in a single transaction, batched by max-batch-size
+     */
+    public synchronized CompletableFuture<Void> flushDirtyBalances() {
+        if (dirtyBalances.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Unmark before reading the cache, so later changes mark the entry dirty again
+        Map<UUID, String> batch = new HashMap<>();
+        Iterator<Map.Entry<UUID, String>> iterator = dirtyBalances.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, String> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+
+        if (deltaWrites) {
+            return writeChanges(batch);
+        }
+
+        // A player unloaded since being marked was saved by the unload; writing the missing cache
+        // entry here would store 0 over their balance
+        Map<UUID, Integer> balances = new HashMap<>();
+        Iterator<UUID> players = batch.keySet().iterator();
+        while (players.hasNext()) {
+            UUID uuid = players.next();
+            long balance = shardCache.get(uuid, Long.MIN_VALUE);
+            if (balance == Long.MIN_VALUE || !loadedPlayers.contains(uuid)) {
+                players.remove();
             } else {
-                // New player
-                shardCache.put(uuid, 0);
-                savePlayerData(player);
+                balances.put(uuid, (int) balance);
             }
-        } catch (SQLException e) {
-            Bukkit.getLogger().log(Level.SEVERE, "Could not load player data for " + player.getName(), e);
-            shardCache.put(uuid, 0);
         }
+        if (balances.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return databaseManager.write(BALANCE_WRITE_KEY, session -> session.balances().saveAll(balances, batch, maxBatchSize))
+                .exceptionally(error -> {
+                    Bukkit.getLogger().log(Level.SEVERE, "Could not flush " + batch.size() + " player balances", error);
+                    // Keep them dirty so the next flush retries
+                    for (Map.Entry<UUID, String> entry : batch.entrySet()) {
+                        dirtyBalances.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                    return null;
+                });
     }
 
     /**
-     * Save all player data
+     * Delta mode: write the pending changes of the given players in one transaction, then
+     * read their stored balances back into the cache. Writes are ordered, so a read-back is
+     * never replaced by an older one that completes after it.
      */
-    public void saveAllPlayerData() {
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = databaseManager.getStorageType().equals("mysql")
-                    ? "INSERT INTO player_shards (uuid, player_name, shards) VALUES (?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE player_name=VALUES(player_name), shards=VALUES(shards)"
-                    : "INSERT OR REPLACE INTO player_shards (uuid, player_name, shards) VALUES (?, ?, ?)";
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                for (Map.Entry<UUID, Integer> entry : shardCache.entrySet()) {
-                    Player player = Bukkit.getPlayer(entry.getKey());
-                    if (player != null) {
-                        stmt.setString(1, entry.getKey().toString());
-                        stmt.setString(2, player.getName());
-                        stmt.setInt(3, entry.getValue());
-                        stmt.addBatch();
+    private CompletableFuture<Void> writeChanges(Map<UUID, String> players) {
+        Map<UUID, Integer> sets = new HashMap<>();
+        Map<UUID, Integer> deltas = new HashMap<>();
+        for (UUID uuid : players.keySet()) {
+            dirtyBalances.remove(uuid);
+            shardCache.runLocked(uuid, () -> {
+                Integer set = pendingSets.remove(uuid);
+                Integer delta = pendingDeltas.remove(uuid);
+                if (set != null) {
+                    sets.put(uuid, set + (delta != null ? delta : 0));
+                } else if (delta != null) {
+                    deltas.put(uuid, delta);
+                }
+            });
+        }
+
+        if (sets.isEmpty() && deltas.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<UUID, Integer> stored = new HashMap<>();
+        return databaseManager.write(BALANCE_WRITE_KEY, session -> {
+            BalanceRepository repository = session.balances();
+            repository.saveAll(sets, players, maxBatchSize);
+            repository.addAll(deltas, players, maxBatchSize);
+
+            for (UUID uuid : players.keySet()) {
+                if (sets.containsKey(uuid) || deltas.containsKey(uuid)) {
+                    Integer balance = repository.find(uuid);
+                    if (balance != null) {
+                        stored.put(uuid, balance);
+                    }
+                }
+            }
+        }).thenRun(() -> {
+            // The stored balance is authoritative; changes made since the write stay on top
+            for (Map.Entry<UUID, Integer> entry : stored.entrySet()) {
+                UUID uuid = entry.getKey();
+                shardCache.computeIfPresent(uuid, current -> pendingSets.containsKey(uuid)
+                        ? current
+                        : entry.getValue() + pendingDeltas.getOrDefault(uuid, 0));
+            }
+        }).exceptionally(error -> {
+            Bukkit.getLogger().log(Level.SEVERE, "Could not write " + (sets.size() + deltas.size())
+                    + " balance changes", error);
+            // Put the changes back so the next flush retries them
+            for (Map.Entry<UUID, String> entry : players.entrySet()) {
+                UUID uuid = entry.getKey();
+                shardCache.runLocked(uuid, () -> {
+                    if (sets.containsKey(uuid)) {
+                        pendingSets.putIfAbsent(uuid, sets.get(uuid));
+                    } else if (deltas.containsKey(uuid) && !pendingSets.containsKey(uuid)) {
+                        pendingDeltas.merge(uuid, deltas.get(uuid), Integer::sum);
+                    }
+                });
+                if (sets.containsKey(uuid) || deltas.containsKey(uuid)) {
+                    dirtyBalances.putIfAbsent(uuid, entry.getValue());
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Stop the flusher and write any remaining dirty balances
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flushDirtyBalances().join();
+    }
+
+    /**
+     * Save player data to database. The future completes once the write is committed.
+     */
+    public CompletableFuture<Void> savePlayerData(Player player) {
+        return savePlayerData(player.getUniqueId(), player.getName());
+    }
+
+    /**
+     * Save the current cached balance to database, or its pending changes in delta mode
+     */
+    private CompletableFuture<Void> savePlayerData(UUID uuid, String playerName) {
+        if (deltaWrites) {
+            return writeChanges(Collections.singletonMap(uuid, playerName));
+        }
+
+        // This write covers any pending write-behind change
+        dirtyBalances.remove(uuid);
+        int shards = (int) shardCache.get(uuid, 0);
+
+        return databaseManager.write(uuid, session -> session.balances().saveAll(
+                Collections.singletonMap(uuid, shards), Collections.singletonMap(uuid, playerName), 1)
+        ).exceptionally(error -> {
+            Bukkit.getLogger().log(Level.SEVERE, "Could not save player data for " + playerName, error);
+            return null;
+        });
+    }
+
+    /**
+     * Load player data on the storage executor. Concurrent calls for the same player share
+     * one query. The future completes with the merged balance.
+     */
+    public CompletableFuture<Integer> loadPlayerData(Player player) {
+        return loadPlayerData(player.getUniqueId(), player.getName());
+    }
+
+    /**
+     * Load a balance by UUID, e.g. during pre-login. Returns the cached balance without a
+     * query if it is already loaded.
+     */
+    public CompletableFuture<Integer> loadPlayerData(UUID uuid, String playerName) {
+        if (loadedPlayers.contains(uuid)) {
+            return CompletableFuture.completedFuture((int) shardCache.get(uuid, 0));
+        }
+
+        CompletableFuture<Integer> load = new CompletableFuture<>();
+        CompletableFuture<Integer> existing = pendingLoads.putIfAbsent(uuid, load);
+        if (existing != null) {
+            return existing;
+        }
+
+        databaseManager.read(uuid, session -> session.balances().find(uuid))
+                .thenApply(stored -> mergeLoaded(uuid, playerName, stored))
+                .whenComplete((balance, error) -> {
+                    pendingLoads.remove(uuid, load);
+                    if (error != null) {
+                        // Stay unloaded so the stored balance is never overwritten; the next access retries
+                        Bukkit.getLogger().log(Level.SEVERE, "Could not load player data for " + playerName, error);
+                        load.completeExceptionally(error);
+                    } else {
+                        load.complete(balance);
                     }
+                });
+        return load;
+    }
+
+    /**
+     * Merge a stored balance (null for a new player) with changes made while it was loading
+     */
+    private int mergeLoaded(UUID uuid, String playerName, Integer stored) {
+        int base = stored != null ? stored : 0;
+        boolean overridden = overriddenBeforeLoad.remove(uuid);
+        boolean isNew = stored == null;
+
+        // Changes made before the load are deltas on top of the stored balance, unless the
+        // balance was set outright
+        int balance = (int) shardCache.compute(uuid, (present, early) -> {
+            int change = (int) early;
+            loadedPlayers.add(uuid);
+            if (deltaWrites) {
+                if (overridden) {
+                    pendingSets.put(uuid, change);
+                } else if (change != 0 || isNew) {
+                    pendingDeltas.merge(uuid, change, Integer::sum);
                 }
-                stmt.executeBatch();
             }
-        } catch (SQLException e) {
-            Bukkit.getLogger().log(Level.SEVERE, "Could not save all player data", e);
+            return overridden ? change : base + change;
+        });
+
+        // New players get a row; merged changes are persisted
+        if (deltaWrites || isNew || balance != base) {
+            savePlayerData(uuid, playerName);
+        }
+        return balance;
+    }
+
+    /**
+     * Save a leaving player's balance and drop it from the cache once written
+     */
+    public CompletableFuture<Void> unloadPlayerData(Player player) {
+        UUID uuid = player.getUniqueId();
+        String playerName = player.getName();
+
+        return databaseManager.supply(uuid, () -> {
+            CompletableFuture<Void> save = loadedPlayers.contains(uuid)
+                    ? savePlayerData(uuid, playerName)
+                    : CompletableFuture.<Void>completedFuture(null);
+
+            // Keep the entry if the player has already rejoined. A reload waits for the save.
+            if (Bukkit.getPlayer(uuid) == null) {
+                loadedPlayers.remove(uuid);
+                overriddenBeforeLoad.remove(uuid);
+                shardCache.remove(uuid);
+            }
+            return save;
+        }).thenCompose(save -> save);
+    }
+
+    /**
+     * Drop a preloaded balance for a player whose login was refused
+     */
+    public void discardPreloaded(UUID uuid) {
+        databaseManager.execute(uuid, () -> {
+            if (Bukkit.getPlayer(uuid) == null && !dirtyBalances.containsKey(uuid)) {
+                loadedPlayers.remove(uuid);
+                overriddenBeforeLoad.remove(uuid);
+                shardCache.remove(uuid);
+            }
+        });
+    }
+
+    /**
+     * Save all player data. Blocks; used on shutdown.
+     */
+    public void saveAllPlayerData() {
+        if (deltaWrites) {
+            // Overwriting with cached totals would undo other servers' changes; shutdown()
+            // has already written every pending delta
+            return;
+        }
+
+        Map<UUID, String> names = new HashMap<>();
+        Map<UUID, Integer> balances = new HashMap<>();
+        shardCache.forEach((uuid, shards) -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null && loadedPlayers.contains(uuid)) {
+                names.put(uuid, player.getName());
+                balances.put(uuid, (int) shards);
+            }
+        });
+
+        try {
+            databaseManager.write(null, session -> session.balances().saveAll(balances, names, maxBatchSize)).join();
+        } catch (CompletionException e) {
+            Bukkit.getLogger().log(Level.SEVERE, "Could not save all player data", e.getCause());
         }
     }
 
@@ -187,6 +1001,8 @@ public class ShardManager {
      */
     public void loadAllPlayerData() {
         shardCache.clear();
+        loadedPlayers.clear();
+        overriddenBeforeLoad.clear();
         for (Player player : Bukkit.getOnlinePlayers()) {
             loadPlayerData(player);
         }
@@ -216,7 +1032,7 @@ public class ShardManager {
     /**
      * Get cached shard data
      */
-    public Map<UUID, Integer> getShardCache() {
+    public UuidLongMap getShardCache() {
         return shardCache;
     }
 }
\ No newline at end of file
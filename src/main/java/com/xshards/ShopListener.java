@@ -1,5 +1,6 @@
 package com.xshards;
 
+import com.xshards.api.ShardBalanceChangeEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.event.EventHandler;
@@ -73,6 +74,13 @@ public class ShopListener implements Listener {
             if (pendingItem != null && event.getCurrentItem() != null) {
                 if (event.getCurrentItem().getType() == Material.GREEN_WOOL) {
                     double price = pendingItem.getPrice();
+                    // Check and charge in one step; the balance may have changed since the shop click
+                    if (!shardManager.tryWithdraw(player, (int) price, ShardBalanceChangeEvent.Cause.PURCHASE)) {
+                        player.sendMessage("§cYou don't have enough shards to purchase this item.");
+                        shardManager.clearPendingPurchase(player);
+                        player.closeInventory();
+                        return;
+                    }
                     ItemStack purchasedItem = pendingItem.getItem().clone();
                     // Remove price lore before giving to player
                     ItemMeta meta = purchasedItem.getItemMeta();
@@ -84,7 +92,6 @@ public class ShopListener implements Listener {
                             purchasedItem.setItemMeta(meta);
                         }
                     }
-                    shardManager.addShards(player, -((int)price));
                     player.getInventory().addItem(purchasedItem);
                     player.sendMessage("§aYou have purchased " + purchasedItem.getType() + " for " + price + " shards!");
                 } else if (event.getCurrentItem().getType() == Material.RED_WOOL) {
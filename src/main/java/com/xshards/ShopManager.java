@@ -1,29 +1,34 @@
 package com.xshards;
 
+import com.xshards.storage.ItemStackCodec;
+import com.xshards.storage.ShopItemRecord;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.Bukkit;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.ChatColor;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class ShopManager {
+    // Orders all shop writes on one storage lane
+    private static final String STORAGE_KEY = "shop_items";
+
     private final Xshards plugin;
     private final Map<Integer, ShopItem> shopItems;
     private final DatabaseManager databaseManager;
 
     public ShopManager(Xshards plugin) {
         this.plugin = plugin;
-        this.shopItems = new HashMap<>();
+        this.shopItems = new ConcurrentHashMap<>();
         this.databaseManager = plugin.getDatabaseManager();
         loadShopData();
     }
@@ -52,67 +57,82 @@ public class ShopManager {
 
     public void removeItemFromShop(int slot) {
         shopItems.remove(slot);
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM shop_items WHERE slot = ?")) {
-            
-            stmt.setInt(1, slot);
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not remove shop item: " + e.getMessage());
-        }
+
+        databaseManager.write(STORAGE_KEY, session -> session.shop().delete(slot)).exceptionally(error -> {
+            plugin.getLogger().log(Level.SEVERE, "Could not remove shop item: " + error.getMessage());
+            return null;
+        });
     }
 
     public ShopItem getItemInShop(int slot) {
         return shopItems.get(slot);
     }
 
-    public void loadShopData() {
-        shopItems.clear();
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT slot, item_data, price FROM shop_items");
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                int slot = rs.getInt("slot");
-                byte[] itemData = rs.getBytes("item_data");
-                double price = rs.getDouble("price");
-                
-                ItemStack item = DatabaseManager.deserializeItemStack(itemData);
-                if (item != null) {
-                    shopItems.put(slot, new ShopItem(item, price));
+    public Map<Integer, ShopItem> getShopItems() {
+        return Collections.unmodifiableMap(shopItems);
+    }
+
+    /**
+     * Load shop items on the storage executor and swap them in when done
+     */
+    public CompletableFuture<Void> loadShopData() {
+        return databaseManager.read(STORAGE_KEY, session -> {
+            Map<Integer, ShopItem> loaded = new HashMap<>();
+            Map<Integer, ShopItem> legacy = new HashMap<>();
+
+            try {
+                for (ShopItemRecord record : session.shop().findAll()) {
+                    ItemStack item = DatabaseManager.deserializeItemStack(record.getItemData());
+                    if (item != null) {
+                        loaded.put(record.getSlot(), new ShopItem(item, record.getPrice()));
+                        if (ItemStackCodec.isLegacy(record.getItemData())) {
+                            legacy.put(record.getSlot(), loaded.get(record.getSlot()));
+                        }
+                    }
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not load shop data: " + e.getMessage());
+                return null;
             }
-            
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not load shop data: " + e.getMessage());
-        }
+
+            shopItems.clear();
+            shopItems.putAll(loaded);
+
+            // Rewrite items still stored in the old Java-serialized format
+            if (!legacy.isEmpty()) {
+                writeShopItems(legacy);
+                plugin.getLogger().info("Migrated " + legacy.size() + " shop items to item format v"
+                        + ItemStackCodec.FORMAT_VERSION);
+            }
+            return null;
+        });
     }
 
+    /**
+     * Save a snapshot of the shop
+     */
     public void saveShopData() {
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = databaseManager.getStorageType().equals("mysql")
-                ? "INSERT INTO shop_items (slot, item_data, price) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE item_data = VALUES(item_data), price = VALUES(price)"
-                : "INSERT OR REPLACE INTO shop_items (slot, item_data, price) VALUES (?, ?, ?)";
-                
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                for (Map.Entry<Integer, ShopItem> entry : shopItems.entrySet()) {
-                    stmt.setInt(1, entry.getKey());
-                    stmt.setBytes(2, DatabaseManager.serializeItemStack(entry.getValue().getItem()));
-                    stmt.setDouble(3, entry.getValue().getPrice());
-                    stmt.executeUpdate();
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save shop data: " + e.getMessage());
+        writeShopItems(new HashMap<>(shopItems));
+    }
+
+    /**
+     * Upsert shop items. Items are encoded before the write is queued.
+     */
+    private CompletableFuture<Void> writeShopItems(Map<Integer, ShopItem> items) {
+        List<ShopItemRecord> records = new ArrayList<>(items.size());
+        for (Map.Entry<Integer, ShopItem> entry : items.entrySet()) {
+            records.add(new ShopItemRecord(entry.getKey(),
+                    DatabaseManager.serializeItemStack(entry.getValue().getItem()), entry.getValue().getPrice()));
         }
+
+        return databaseManager.write(STORAGE_KEY, session -> session.shop().saveAll(records)).exceptionally(error -> {
+            plugin.getLogger().log(Level.SEVERE, "Could not save shop data: " + error.getMessage());
+            return null;
+        });
     }
 
     public void openShopGUI(Player player) {
-        int size = plugin.getConfig().getInt("store.size", 54);
-        size = Math.min(54, Math.max(9, (size / 9) * 9));
+        int size = plugin.getSettings().getStoreSize();
         
         org.bukkit.inventory.Inventory shopInventory = Bukkit.createInventory(null, size, "Shard Shop");
         
@@ -8,24 +8,21 @@ import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
 
 /**
  * Manager for WorldGuard integration
  */
 public class WorldGuardManager {
 
-    private final Plugin plugin;
+    private final Xshards plugin;
     private final boolean enabled;
-    private String afkRegionName;
 
-    public WorldGuardManager(Plugin plugin) {
+    public WorldGuardManager(Xshards plugin) {
         this.plugin = plugin;
         this.enabled = checkWorldGuard();
 
         if (enabled) {
-            this.afkRegionName = plugin.getConfig().getString("earning.afk.worldguard.region", "afk-zone");
-            plugin.getLogger().info("WorldGuard integration enabled! AFK region: " + afkRegionName);
+            plugin.getLogger().info("WorldGuard integration enabled! AFK region: " + getAfkRegionName());
         } else {
             plugin.getLogger().info("WorldGuard not found - region features disabled");
         }
@@ -47,17 +44,19 @@ public class WorldGuardManager {
      * Check if WorldGuard integration is enabled
      */
     public boolean isEnabled() {
-        return enabled && plugin.getConfig().getBoolean("earning.afk.worldguard.enabled", false);
+        return enabled && plugin.getSettings().isWorldGuardEnabled();
     }
 
     /**
      * Check if player is in the AFK region
      */
     public boolean isInAfkRegion(Player player) {
-        if (!isEnabled()) {
+        Settings settings = plugin.getSettings();
+        if (!enabled || !settings.isWorldGuardEnabled()) {
             return false;
         }
 
+        String afkRegionName = settings.getWorldGuardRegion();
         try {
             Location location = player.getLocation();
             RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
@@ -86,36 +85,39 @@ public class WorldGuardManager {
      * Check if region requirement is enabled
      */
     public boolean requiresRegion() {
-        return isEnabled() && plugin.getConfig().getBoolean("earning.afk.worldguard.require-region", true);
+        Settings settings = plugin.getSettings();
+        return enabled && settings.isWorldGuardEnabled() && settings.isWorldGuardRequireRegion();
     }
 
     /**
      * Check if auto-start is enabled
      */
     public boolean isAutoStartEnabled() {
-        return isEnabled() && plugin.getConfig().getBoolean("earning.afk.worldguard.auto-start", true);
+        Settings settings = plugin.getSettings();
+        return enabled && settings.isWorldGuardEnabled() && settings.isWorldGuardAutoStart();
     }
 
     /**
      * Check if auto-stop is enabled
      */
     public boolean isAutoStopEnabled() {
-        return isEnabled() && plugin.getConfig().getBoolean("earning.afk.worldguard.auto-stop", true);
+        Settings settings = plugin.getSettings();
+        return enabled && settings.isWorldGuardEnabled() && settings.isWorldGuardAutoStop();
     }
 
     /**
      * Get the AFK region name
      */
     public String getAfkRegionName() {
-        return afkRegionName;
+        return plugin.getSettings().getWorldGuardRegion();
     }
 
     /**
      * Set the AFK region name
      */
     public void setAfkRegionName(String regionName) {
-        this.afkRegionName = regionName;
         plugin.getConfig().set("earning.afk.worldguard.region", regionName);
         plugin.saveConfig();
+        plugin.refreshSettings();
     }
 }
\ No newline at end of file
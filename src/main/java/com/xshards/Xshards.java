@@ -1,10 +1,13 @@
 package com.xshards;
 
 import com.xshards.ProxyManager;
+import com.xshards.api.SimpleXshardsApi;
+import com.xshards.api.XshardsApi;
 import com.xshards.scheduler.SchedulerAdapter;
 import com.xshards.utils.MessageManager;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -18,6 +21,9 @@ public class Xshards extends JavaPlugin {
     private MessageManager messageManager;
     private WorldGuardManager worldGuardManager;
     private ProxyManager proxyManager;
+    private ShardEconomy shardEconomy;
+    private ShardListener shardListener;
+    private volatile Settings settings;
 
     @Override
     public void onEnable() {
@@ -26,6 +32,7 @@ public class Xshards extends JavaPlugin {
 
         // Save the default config if it doesn't exist
         saveDefaultConfig();
+        settings = Settings.fromConfig(getConfig());
 
         // Create storage directory if it doesn't exist
         File storageDir = new File(getDataFolder(), "storage");
@@ -54,6 +61,10 @@ public class Xshards extends JavaPlugin {
         shopManager = new ShopManager(this);
         afkManager = new AfkManager(this, scheduler, messageManager, worldGuardManager, proxyManager);
 
+        // Expose the shard API to other plugins
+        getServer().getServicesManager().register(XshardsApi.class, new SimpleXshardsApi(shardManager), this,
+                ServicePriority.Normal);
+
         // Register commands
         getCommand("shards").setExecutor(new ShardCommand(shardManager, messageManager));
         getCommand("store").setExecutor(new ShopCommand(shopManager));
@@ -64,12 +75,22 @@ public class Xshards extends JavaPlugin {
         getCommand("afkremove").setExecutor(new AfkRemoveCommand(afkManager, messageManager));
 
         // Register listeners
-        getServer().getPluginManager().registerEvents(new ShardListener(shardManager, this), this);
+        getServer().getPluginManager().registerEvents(
+                new PreloadListener(this, shardManager, afkManager, messageManager), this
+        );
+        shardListener = new ShardListener(shardManager, this);
+        getServer().getPluginManager().registerEvents(shardListener, this);
         getServer().getPluginManager().registerEvents(new ShopListener(shopManager, shardManager), this);
         getServer().getPluginManager().registerEvents(
                 new AfkListener(afkManager, worldGuardManager, messageManager, scheduler), this
         );
 
+        // Vault integration
+        if (settings.isVaultEnabled() && getServer().getPluginManager().getPlugin("Vault") != null) {
+            shardEconomy = ShardEconomy.register(this, shardManager);
+            getLogger().info("Vault detected. Shards registered as an economy provider!");
+        }
+
         // PlaceholderAPI integration
         if (getServer().getPluginManager().getPlugin("PlaceholderAPI") != null) {
             new XshardsPlaceholder(shardManager).register();
@@ -78,26 +99,25 @@ public class Xshards extends JavaPlugin {
             getLogger().warning("PlaceholderAPI not found. Placeholders will not be available.");
         }
 
-        // Clear any lingering AFK data from previous server session
-        try {
-            databaseManager.getConnection().prepareStatement("DELETE FROM afk_status").executeUpdate();
-            getLogger().info("AFK status data has been reset on server startup.");
-        } catch (Exception e) {
-            getLogger().warning("Failed to clear AFK status data: " + e.getMessage());
-        }
-
         getLogger().info("Xshards v2.0.0 has been enabled with " +
                 (scheduler.isFolia() ? "Folia" : "Bukkit") + " support!");
     }
 
     @Override
     public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+
+        if (databaseManager != null) {
+            // The saves below run on the main thread and must not be refused by a full queue
+            databaseManager.prepareShutdown();
+        }
+
         // Check if managers were initialized properly
         if (afkManager != null) {
-            // Remove all players from AFK mode
+            // Remove all players from AFK mode, keeping their progress toward the next reward
             for (Player player : Bukkit.getOnlinePlayers()) {
                 if (afkManager.isAfk(player)) {
-                    afkManager.quitAfk(player);
+                    afkManager.quitAfk(player, true);
                 }
             }
             afkManager.shutdown();
@@ -105,6 +125,7 @@ public class Xshards extends JavaPlugin {
 
         // Save all data if managers were initialized
         if (shardManager != null) {
+            shardManager.shutdown();
             shardManager.saveAllPlayerData();
         }
 
@@ -112,6 +133,10 @@ public class Xshards extends JavaPlugin {
             shopManager.saveShopData();
         }
 
+        if (shardListener != null) {
+            shardListener.saveKillCooldowns();
+        }
+
         // Close database connection
         if (databaseManager != null) {
             databaseManager.close();
@@ -134,6 +159,10 @@ public class Xshards extends JavaPlugin {
         return this.shardManager;
     }
 
+    public ShardListener getShardListener() {
+        return this.shardListener;
+    }
+
     public ShopManager getShopManager() {
         return this.shopManager;
     }
@@ -158,24 +187,41 @@ public class Xshards extends JavaPlugin {
         return this.proxyManager;
     }
 
+    /**
+     * Current config snapshot. Replaced as a whole on reload, so read it once per operation.
+     */
+    public Settings getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * Re-parse the in-memory config into a new snapshot, after changing it with set()
+     */
+    public void refreshSettings() {
+        this.settings = Settings.fromConfig(getConfig());
+    }
+
+    /**
+     * Get the Vault economy provider, or null if Vault is not installed
+     */
+    public ShardEconomy getShardEconomy() {
+        return this.shardEconomy;
+    }
+
     public void reloadPlugin() {
         reloadConfig();
+        refreshSettings();
 
         // Reload message manager
         messageManager = new MessageManager(getConfig());
 
-        // Reload database connection if storage type changed
+        // Storage is restart-only: the managers hold the DatabaseManager and its executor, and
+        // closing it would leave them with a dead one
         String currentStorageType = databaseManager.getStorageType();
-        String configStorageType = getConfig().getString("storage.type", "sqlite");
-
+        String configStorageType = settings.getStorageType();
         if (!currentStorageType.equals(configStorageType)) {
-            getLogger().info("Storage type changed from " + currentStorageType + " to " + configStorageType + ". Reconnecting...");
-            databaseManager.close();
-            databaseManager = new DatabaseManager(this);
-
-            // Reload all data
-            shardManager.loadAllPlayerData();
-            shopManager.loadShopData();
+            getLogger().warning("Storage type changed from " + currentStorageType + " to " + configStorageType
+                    + ". Restart the server to switch; " + currentStorageType + " stays in use until then.");
         }
     }
 }
\ No newline at end of file
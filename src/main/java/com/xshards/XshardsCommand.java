@@ -1,6 +1,9 @@
 package com.xshards;
 
 import com.xshards.Xshards;
+import com.xshards.storage.ConnectionPool;
+import com.xshards.storage.SQLiteWriter;
+import com.xshards.storage.StorageExecutor;
 import com.xshards.utils.MessageManager;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -75,8 +78,8 @@ public class XshardsCommand implements CommandExecutor {
         // Admin komutları
         if (sender.hasPermission("xshards.admin")) {
             sender.sendMessage(ChatColor.GOLD + "\nAdmin Komutları:");
-            sender.sendMessage(ChatColor.YELLOW + "/setafk " + ChatColor.WHITE + "- AFK konumunu ayarla");
-            sender.sendMessage(ChatColor.YELLOW + "/afkremove " + ChatColor.WHITE + "- AFK konumunu kaldır");
+            sender.sendMessage(ChatColor.YELLOW + "/setafk [bölge] [kapasite] " + ChatColor.WHITE + "- AFK bölgesini ayarla");
+            sender.sendMessage(ChatColor.YELLOW + "/afkremove [bölge] " + ChatColor.WHITE + "- AFK bölgesini kaldır");
             sender.sendMessage(ChatColor.YELLOW + "/xshards reload " + ChatColor.WHITE + "- Yapılandırmayı yeniden yükle");
             sender.sendMessage(ChatColor.YELLOW + "/xshards version " + ChatColor.WHITE + "- Eklenti sürümünü göster");
             sender.sendMessage(ChatColor.YELLOW + "/shards give <oyuncu> <miktar> " + ChatColor.WHITE + "- Oyuncuya shard ver");
@@ -92,6 +95,58 @@ public class XshardsCommand implements CommandExecutor {
         sender.sendMessage(ChatColor.GOLD + "\nSistem Bilgisi:");
         sender.sendMessage(ChatColor.WHITE + "• Veritabanı: " + ChatColor.YELLOW +
                 plugin.getDatabaseManager().getStorageType().toUpperCase());
+        ConnectionPool pool = plugin.getDatabaseManager().getPool();
+        if (pool != null) {
+            sender.sendMessage(ChatColor.WHITE + "• Bağlantı Havuzu: " + ChatColor.YELLOW +
+                    pool.getActiveConnections() + " aktif, " + pool.getIdleConnections() + " boşta, " +
+                    pool.getWaitingThreads() + " bekleyen" + ChatColor.WHITE + " (ort. bekleme " +
+                    String.format("%.2f", pool.getAverageWaitMillis()) + "ms, maks. " +
+                    String.format("%.2f", pool.getMaxWaitMillis()) + "ms)");
+        }
+        SQLiteWriter writer = plugin.getDatabaseManager().getWriter();
+        if (writer != null) {
+            sender.sendMessage(ChatColor.WHITE + "• SQLite Yazıcı: " + ChatColor.YELLOW +
+                    writer.getQueueDepth() + " bekleyen yazma" + ChatColor.WHITE + " (ort. " +
+                    String.format("%.1f", writer.getAverageBatchSize()) + " yazma/işlem, ort. commit " +
+                    String.format("%.2f", writer.getAverageCommitMillis()) + "ms, hatalı " +
+                    writer.getFailed() + ")");
+        }
+        StorageExecutor executor = plugin.getDatabaseManager().getExecutor();
+        if (executor != null) {
+            sender.sendMessage(ChatColor.WHITE + "• Veritabanı Kuyruğu: " + ChatColor.YELLOW +
+                    executor.getQueueDepth() + "/" + executor.getQueueCapacity() + " görev" + ChatColor.WHITE +
+                    " (ort. bekleme " + String.format("%.2f", executor.getAverageQueueMillis()) + "ms, ort. süre " +
+                    String.format("%.2f", executor.getAverageRunMillis()) + "ms, reddedilen " +
+                    executor.getRejected() + ")");
+        }
+        ShardEconomy economy = plugin.getShardEconomy();
+        if (economy != null) {
+            sender.sendMessage(ChatColor.WHITE + "• Vault Ekonomisi: " + ChatColor.YELLOW +
+                    (economy.getOnlineHits() + economy.getOfflineHits()) + " isabet, " + economy.getMisses() + " ıska" +
+                    ChatColor.WHITE + " (çevrimdışı önbellek " + economy.getOfflineCacheSize() + " oyuncu)");
+        }
+        AfkManager afkManager = plugin.getAfkManager();
+        if (afkManager != null) {
+            sender.sendMessage(ChatColor.WHITE + "• AFK Ödülleri: " + ChatColor.YELLOW +
+                    afkManager.getActiveSessionCount() + " oyuncu" + ChatColor.WHITE + " (" +
+                    afkManager.getLiveRewardTasks() + " zamanlayıcı)");
+            AfkZones zones = afkManager.getZones();
+            sender.sendMessage(ChatColor.WHITE + "• AFK Bölgeleri: " + ChatColor.YELLOW + zones.size() + " bölge"
+                    + ChatColor.WHITE + ", " + zones.getAssignedCount() + " oyuncu"
+                    + (zones.size() > 0 ? " (" + String.join(", ", zones.describe()) + ")" : ""));
+            CountdownEngine countdowns = afkManager.getCountdowns();
+            sender.sendMessage(ChatColor.WHITE + "• AFK Geri Sayımları: " + ChatColor.YELLOW +
+                    countdowns.getActiveCountdowns() + " oyuncu, " + countdowns.getActiveBars() + " bar" +
+                    ChatColor.WHITE + " (havuzda " + countdowns.getPooledBars() + ", toplam oluşturulan " +
+                    countdowns.getBarsCreated() + ")");
+        }
+        ShardListener shardListener = plugin.getShardListener();
+        if (shardListener != null) {
+            KillCooldownStore cooldowns = shardListener.getKillCooldowns();
+            sender.sendMessage(ChatColor.WHITE + "• Öldürme Bekleme Süreleri: " + ChatColor.YELLOW +
+                    cooldowns.size() + " kayıt" + ChatColor.WHITE + " (" + cooldowns.getLiveBuckets() + "/" +
+                    cooldowns.getBucketCount() + " dolu kova)");
+        }
         sender.sendMessage(ChatColor.WHITE + "• Folia Desteği: " +
                 (plugin.getScheduler().isFolia() ? ChatColor.GREEN + "✓" : ChatColor.RED + "✗"));
         sender.sendMessage(ChatColor.WHITE + "• WorldGuard: " +
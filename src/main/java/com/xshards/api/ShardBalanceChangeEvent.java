@@ -0,0 +1,103 @@
+package com.xshards.api;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Fired before an online player's shard balance changes. Cancelling it leaves the balance
+ * untouched. Only fired when at least one listener is registered.
+ *
+ * Called on the thread making the change, which is the player's region thread on Folia.
+ */
+public class ShardBalanceChangeEvent extends Event implements Cancellable {
+
+    /**
+     * Why the balance is changing
+     */
+    public enum Cause {
+        /** Reward for time spent in AFK mode */
+        AFK,
+        /** Reward for time spent online */
+        PLAYTIME,
+        /** Reward for killing a player */
+        KILL,
+        /** Shop purchase */
+        PURCHASE,
+        /** Staff command or another plugin */
+        ADMIN
+    }
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Player player;
+    private final Cause cause;
+    private final int oldBalance;
+    private final int newBalance;
+    private boolean cancelled;
+
+    public ShardBalanceChangeEvent(Player player, Cause cause, int oldBalance, int newBalance) {
+        super(!Bukkit.isPrimaryThread());
+        this.player = player;
+        this.cause = cause;
+        this.oldBalance = oldBalance;
+        this.newBalance = newBalance;
+    }
+
+    /**
+     * Check if anything listens for this event, so callers can skip building it
+     */
+    public static boolean hasListeners() {
+        return HANDLERS.getRegisteredListeners().length > 0;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public Cause getCause() {
+        return cause;
+    }
+
+    /**
+     * Balance before the change, as cached when the event was fired
+     */
+    public int getOldBalance() {
+        return oldBalance;
+    }
+
+    /**
+     * Balance after the change, unless another change lands first
+     */
+    public int getNewBalance() {
+        return newBalance;
+    }
+
+    /**
+     * Signed change: positive when shards are gained
+     */
+    public int getAmount() {
+        return newBalance - oldBalance;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,83 @@
+package com.xshards.api;
+
+import com.xshards.ShardManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link XshardsApi} on top of the ShardManager cache. Loaded players are answered from
+ * memory; everyone else goes to the database through the storage executor.
+ */
+public final class SimpleXshardsApi implements XshardsApi {
+
+    private final ShardManager shardManager;
+
+    public SimpleXshardsApi(ShardManager shardManager) {
+        this.shardManager = shardManager;
+    }
+
+    @Override
+    public boolean isLoaded(UUID uuid) {
+        return shardManager.isLoaded(uuid);
+    }
+
+    @Override
+    public OptionalInt getCachedShards(UUID uuid) {
+        return shardManager.isLoaded(uuid) ? OptionalInt.of(shardManager.getCachedShards(uuid)) : OptionalInt.empty();
+    }
+
+    @Override
+    public CompletableFuture<Integer> getShards(UUID uuid) {
+        return shardManager.fetchShards(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Integer>> getShards(Collection<UUID> uuids) {
+        return shardManager.fetchShards(uuids);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, UUID>> findPlayers(Collection<String> names) {
+        return shardManager.resolvePlayers(names);
+    }
+
+    @Override
+    public CompletableFuture<Void> addShards(UUID uuid, int amount) {
+        requireNonNegative(amount);
+        return shardManager.addShards(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<Void> addShards(Map<UUID, Integer> amounts) {
+        amounts.values().forEach(SimpleXshardsApi::requireNonNegative);
+        return shardManager.addShards(amounts);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> withdrawShards(UUID uuid, int amount) {
+        requireNonNegative(amount);
+        return shardManager.withdrawShards(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Boolean>> withdrawShards(Map<UUID, Integer> amounts) {
+        amounts.values().forEach(SimpleXshardsApi::requireNonNegative);
+        return shardManager.withdrawShards(amounts);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transferShards(UUID from, UUID to, int amount) {
+        requireNonNegative(amount);
+        return shardManager.transferShards(from, to, amount);
+    }
+
+    private static void requireNonNegative(int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.xshards.api;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shard balances for other plugins, registered with Bukkit's ServicesManager:
+ * <pre>
+ * XshardsApi shards = Bukkit.getServicesManager().load(XshardsApi.class);
+ * </pre>
+ *
+ * Nothing here blocks the calling thread. Futures may complete on a storage thread, so hop
+ * back to the scheduler before touching the world. Amounts must not be negative.
+ *
+ * Changes to an online player's balance fire a {@link ShardBalanceChangeEvent} with cause
+ * ADMIN. A cancelled withdrawal or transfer reports false; a cancelled addShards fails its
+ * future with an IllegalStateException.
+ */
+public interface XshardsApi {
+
+    /**
+     * Check if a player's balance is in memory, which is the case for online players once
+     * their stored balance has been read
+     */
+    boolean isLoaded(UUID uuid);
+
+    /**
+     * Balance of a loaded player, or empty if it is not loaded. Never queries the database.
+     */
+    OptionalInt getCachedShards(UUID uuid);
+
+    /**
+     * Balance of any player, online or not. Players who never had shards have 0.
+     */
+    CompletableFuture<Integer> getShards(UUID uuid);
+
+    /**
+     * Balances of many players, with all players that are not loaded read in one query
+     */
+    CompletableFuture<Map<UUID, Integer>> getShards(Collection<UUID> uuids);
+
+    /**
+     * Look up players by name, online or not. Offline names are matched case-insensitively
+     * against stored balances, so players who never had shards are not found.
+     *
+     * @return UUID per name, keyed by the name in lower case; unknown names are left out
+     */
+    CompletableFuture<Map<String, UUID>> findPlayers(Collection<String> names);
+
+    /**
+     * Give shards to any player, online or not
+     */
+    CompletableFuture<Void> addShards(UUID uuid, int amount);
+
+    /**
+     * Give shards to many players, with every player who is not loaded credited in one
+     * transaction. If any change is cancelled, nothing is added.
+     */
+    CompletableFuture<Void> addShards(Map<UUID, Integer> amounts);
+
+    /**
+     * Take shards if the player has at least the amount, checked and charged atomically
+     *
+     * @return false if the player has too few shards or the change was cancelled; nothing is
+     *         taken then
+     */
+    CompletableFuture<Boolean> withdrawShards(UUID uuid, int amount);
+
+    /**
+     * Take shards from many players, each independently, with every player who is not loaded
+     * charged in one transaction
+     *
+     * @return per player, whether the shards were taken
+     */
+    CompletableFuture<Map<UUID, Boolean>> withdrawShards(Map<UUID, Integer> amounts);
+
+    /**
+     * Move shards from one player to another if the sender has enough
+     *
+     * @return false if the sender has too few shards or the change was cancelled; nothing is
+     *         moved then
+     */
+    CompletableFuture<Boolean> transferShards(UUID from, UUID to, int amount);
+}
@@ -1,11 +1,13 @@
 package com.xshards.scheduler;
 
 import org.bukkit.Location;
+import org.bukkit.entity.Entity;
 import org.bukkit.plugin.Plugin;
 import space.arim.morepaperlib.MorePaperLib;
 import space.arim.morepaperlib.scheduling.GracefulScheduling;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
 
-import java.util.function.Consumer;
+import java.time.Duration;
 
 /**
  * Scheduler adapter for Folia and Bukkit compatibility
@@ -37,6 +39,14 @@ public class SchedulerAdapter {
         scheduling.asyncScheduler().run(task);
     }
 
+    /**
+     * Run repeating task asynchronously
+     */
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduling.asyncScheduler().runAtFixedRate(task,
+                Duration.ofMillis(delayTicks * 50L), Duration.ofMillis(periodTicks * 50L));
+    }
+
     /**
      * Run task on global region (main thread on Bukkit)
      */
@@ -54,8 +64,8 @@ public class SchedulerAdapter {
     /**
      * Run repeating task on global region
      */
-    public void runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
-        scheduling.globalRegionalScheduler().runAtFixedRate(task, delayTicks, periodTicks);
+    public ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduling.globalRegionalScheduler().runAtFixedRate(task, delayTicks, periodTicks);
     }
 
     /**
@@ -79,6 +89,23 @@ public class SchedulerAdapter {
         scheduling.regionSpecificScheduler(location).runAtFixedRate(task, delayTicks, periodTicks);
     }
 
+    /**
+     * Run task on the thread that owns an entity (the entity's region on Folia, the main
+     * thread on Bukkit). If the entity is removed first, {@code retired} runs instead.
+     *
+     * @param retired callback for a removed entity, may be null
+     */
+    public ScheduledTask runAtEntity(Entity entity, Runnable task, Runnable retired) {
+        return scheduling.entitySpecificScheduler(entity).run(task, retired);
+    }
+
+    /**
+     * Run task on the thread that owns an entity, with delay
+     */
+    public ScheduledTask runAtEntityDelayed(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        return scheduling.entitySpecificScheduler(entity).runDelayed(task, retired, delayTicks);
+    }
+
     /**
      * Check if current thread is the global region thread
      */
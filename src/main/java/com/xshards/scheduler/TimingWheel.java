@@ -0,0 +1,174 @@
+package com.xshards.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel: keys are hashed into slots by due tick, and advancing the wheel only
+ * looks at the slots that passed, so each tick costs the number of keys in that slot rather
+ * than the number of keys scheduled. Deadlines further away than one revolution simply stay
+ * in their slot until the wheel comes around to them again.
+ *
+ * Each key is scheduled at most once; scheduling it again moves it. Thread-safe.
+ */
+public final class TimingWheel<K> {
+
+    private final Node<K>[] slots;
+    private final int mask;
+    private final long tickMillis;
+    private final long origin;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+
+    // Next tick to be expired
+    private long currentTick;
+
+    /**
+     * @param slotCount  number of slots, rounded up to a power of two
+     * @param tickMillis resolution of the wheel
+     * @param nowMillis  current time, which becomes tick 0
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int slotCount, long tickMillis, long nowMillis) {
+        if (slotCount <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Slot count and tick length must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.slots = (Node<K>[]) new Node[size];
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.origin = nowMillis;
+    }
+
+    /**
+     * Schedule a key to become due at the given time, replacing any earlier schedule.
+     * Times in the past are due on the next advance.
+     */
+    public synchronized void schedule(K key, long dueMillis) {
+        Node<K> node = nodes.get(key);
+        if (node != null) {
+            unlink(node);
+        } else {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        }
+
+        // Round up so a key never fires before its time
+        long tick = Math.floorDiv(dueMillis - origin + tickMillis - 1, tickMillis);
+        node.tick = Math.max(tick, currentTick);
+        link(node);
+    }
+
+    /**
+     * Remove a key from the wheel
+     *
+     * @return true if it was scheduled
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Check if a key is scheduled
+     */
+    public synchronized boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Expire every key due up to the given time. Expired keys are removed from the wheel.
+     *
+     * @return the expired keys, in no particular order
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis - origin, tickMillis);
+        if (targetTick < currentTick) {
+            return new ArrayList<>(0);
+        }
+
+        List<K> due = new ArrayList<>();
+        if (targetTick - currentTick >= slots.length) {
+            // Fell behind by a full revolution or more, so every slot has to be checked anyway
+            for (int i = 0; i < slots.length; i++) {
+                expire(i, targetTick, due);
+            }
+        } else {
+            for (long tick = currentTick; tick <= targetTick; tick++) {
+                expire((int) (tick & mask), targetTick, due);
+            }
+        }
+        currentTick = targetTick + 1;
+        return due;
+    }
+
+    /**
+     * Number of scheduled keys
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Remove every key
+     */
+    public synchronized void clear() {
+        nodes.clear();
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+    }
+
+    private void expire(int slot, long targetTick, List<K> due) {
+        Node<K> node = slots[slot];
+        while (node != null) {
+            Node<K> next = node.next;
+            if (node.tick <= targetTick) {
+                unlink(node);
+                nodes.remove(node.key);
+                due.add(node.key);
+            }
+            node = next;
+        }
+    }
+
+    private void link(Node<K> node) {
+        int slot = (int) (node.tick & mask);
+        Node<K> head = slots[slot];
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        slots[slot] = node;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[(int) (node.tick & mask)] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node<K> {
+        final K key;
+        long tick;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * AFK zones (afk_zones) and players' return locations (player_locations)
+ */
+public interface AfkLocationRepository {
+
+    List<AfkZoneRecord> findZones() throws SQLException;
+
+    /**
+     * Insert a zone or replace the zone with the same name
+     */
+    void saveZone(AfkZoneRecord zone) throws SQLException;
+
+    /**
+     * @return false if no zone has that name
+     */
+    boolean deleteZone(String name) throws SQLException;
+
+    LocationRecord findPlayerLocation(UUID uuid) throws SQLException;
+
+    void savePlayerLocation(UUID uuid, LocationRecord location) throws SQLException;
+
+    void deletePlayerLocation(UUID uuid) throws SQLException;
+}
@@ -0,0 +1,47 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stored AFK sessions (afk_status). Besides the live flag each row keeps the seconds a player
+ * has accrued toward their next AFK reward, checkpointed while they are AFK and carried over
+ * when a session ends by disconnect, crash or restart.
+ */
+public interface AfkStatusRepository {
+
+    /**
+     * Start time of every session marked as AFK
+     */
+    Map<UUID, Long> findActive() throws SQLException;
+
+    boolean isAfk(UUID uuid) throws SQLException;
+
+    /**
+     * Seconds accrued toward the next reward, 0 if the player has no row
+     */
+    int findAccruedSeconds(UUID uuid) throws SQLException;
+
+    void save(UUID uuid, boolean afk, long startTime, int accruedSeconds) throws SQLException;
+
+    /**
+     * Record accrued seconds of sessions that are still marked as AFK, in one batch
+     */
+    void checkpoint(Map<UUID, Integer> accruedSeconds) throws SQLException;
+
+    /**
+     * Close every session still marked as AFK, except the resumed ones. Whole shards earned by
+     * the accrued seconds, pro rata, are returned; the seconds they do not cover stay on the
+     * row as carry-over.
+     *
+     * @param intervalSeconds seconds per reward
+     * @param amount shards per reward
+     * @param resumed sessions that continue and are left untouched
+     * @return shards owed per player, only for players owed at least one
+     */
+    Map<UUID, Integer> settle(int intervalSeconds, int amount, Collection<UUID> resumed) throws SQLException;
+
+    void clear() throws SQLException;
+}
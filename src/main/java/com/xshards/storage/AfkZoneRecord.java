@@ -0,0 +1,32 @@
+package com.xshards.storage;
+
+/**
+ * A stored AFK zone: a named teleport target with a player limit
+ */
+public final class AfkZoneRecord {
+
+    private final String name;
+    private final LocationRecord location;
+    private final int capacity;
+
+    /**
+     * @param capacity most players in the zone at once, 0 for no limit
+     */
+    public AfkZoneRecord(String name, LocationRecord location, int capacity) {
+        this.name = name;
+        this.location = location;
+        this.capacity = capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocationRecord getLocation() {
+        return location;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,56 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stored shard balances (player_shards)
+ */
+public interface BalanceRepository {
+
+    /**
+     * Get a stored balance, or null if the player has no row yet
+     */
+    Integer find(UUID uuid) throws SQLException;
+
+    /**
+     * Get the stored balances of many players at once. Players without a row are left out.
+     */
+    Map<UUID, Integer> findAll(Collection<UUID> uuids) throws SQLException;
+
+    /**
+     * Look up players by their stored name, ignoring case. If several rows share a name the
+     * most recently updated one wins.
+     *
+     * @return UUID per name, keyed by the name in lower case; unknown names are left out
+     */
+    Map<String, UUID> findUuidsByName(Collection<String> names) throws SQLException;
+
+    /**
+     * Replace stored balances, creating rows as needed
+     *
+     * @param balances new balance per player
+     * @param names player name per player, stored alongside the balance
+     * @param batchSize rows sent per batch
+     */
+    void saveAll(Map<UUID, Integer> balances, Map<UUID, String> names, int batchSize) throws SQLException;
+
+    /**
+     * Add to stored balances, creating rows as needed
+     *
+     * @param deltas amount to add per player
+     * @param names player name per player, stored alongside the balance; players without a
+     *              name keep their stored one
+     * @param batchSize rows sent per batch
+     */
+    void addAll(Map<UUID, Integer> deltas, Map<UUID, String> names, int batchSize) throws SQLException;
+
+    /**
+     * Take shards from a stored balance if it holds at least the amount, in one statement
+     *
+     * @return false if the player has no row or too few shards
+     */
+    boolean withdraw(UUID uuid, int amount) throws SQLException;
+}
@@ -0,0 +1,426 @@
+package com.xshards.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections are leased through {@link #getConnection()} and handed out as proxies whose
+ * {@code close()} returns the physical connection to the pool instead of closing it, so
+ * callers can keep using try-with-resources.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens new physical connections for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final String name;
+    private final Logger logger;
+    private final ConnectionFactory factory;
+    private final PoolSettings settings;
+
+    // Idle connections, most recently used first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+
+    // Bounds concurrent leases at the maximum size; idle connections hold no permit
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Why the pool could not open its idle connections on creation, or null
+    private final SQLException startupFailure;
+
+    // Statistics
+    private final LongAdder totalLeases = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public ConnectionPool(String name, Logger logger, ConnectionFactory factory, PoolSettings settings) {
+        this.name = name;
+        this.logger = logger;
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaximumSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.startupFailure = fillToMinimumIdle();
+        long period = settings.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lease a connection, waiting up to the configured connection timeout
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.getConnectionTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLException("Timed out after " + settings.getConnectionTimeoutMillis() +
+                    "ms waiting for a database connection (" + describe() + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            long waited = System.nanoTime() - start;
+            totalLeases.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            pooled.lease(settings.getLeakDetectionThresholdMillis() > 0);
+            leased.add(pooled);
+            return pooled.proxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Reuse a healthy idle connection or open a new one
+     */
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isExpired(pooled)) {
+                pooled.closePhysical();
+                continue;
+            }
+            if (pooled.idleMillis() >= settings.getValidationIntervalMillis() && !isValid(pooled)) {
+                pooled.closePhysical();
+                continue;
+            }
+            return pooled;
+        }
+
+        created.increment();
+        return new PooledConnection(factory.create());
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(settings.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        long maxLifetime = settings.getMaxLifetimeMillis();
+        return maxLifetime > 0 && pooled.ageMillis() >= maxLifetime;
+    }
+
+    /**
+     * Return a leased connection to the pool
+     */
+    private void release(PooledConnection pooled) {
+        if (!leased.remove(pooled)) {
+            return;
+        }
+
+        try {
+            if (closed || pooled.physical.isClosed() || isExpired(pooled)) {
+                pooled.closePhysical();
+            } else {
+                pooled.reset();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Periodic maintenance: retire old or surplus idle connections, top up idle connections
+     * and report leases that have been held for too long
+     */
+    private void housekeep() {
+        try {
+            long idleTimeout = settings.getIdleTimeoutMillis();
+            int surplus = idle.size() - settings.getMinimumIdle();
+
+            for (PooledConnection pooled : idle) {
+                boolean retire = isExpired(pooled);
+                if (!retire && idleTimeout > 0 && surplus > 0 && pooled.idleMillis() >= idleTimeout) {
+                    retire = true;
+                    surplus--;
+                }
+                if (retire && idle.remove(pooled)) {
+                    pooled.closePhysical();
+                }
+            }
+
+            fillToMinimumIdle();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Connection pool " + name + " housekeeping failed", e);
+        }
+    }
+
+    /**
+     * @return the error that stopped opening connections, or null
+     */
+    private SQLException fillToMinimumIdle() {
+        while (!closed && idle.size() < settings.getMinimumIdle()
+                && getTotalConnections() < settings.getMaximumSize() && permits.tryAcquire()) {
+            try {
+                created.increment();
+                idle.offerLast(new PooledConnection(factory.create()));
+            } catch (SQLException e) {
+                logger.warning("Connection pool " + name + " could not open an idle connection: " + e.getMessage());
+                return e;
+            } finally {
+                permits.release();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Why the pool could not open its minimum idle connections when it was created, or null if
+     * it could
+     */
+    public SQLException getStartupFailure() {
+        return startupFailure;
+    }
+
+    private void detectLeaks() {
+        long threshold = settings.getLeakDetectionThresholdMillis();
+        if (threshold <= 0) {
+            return;
+        }
+
+        for (PooledConnection pooled : leased) {
+            if (!pooled.leakReported && pooled.leaseMillis() >= threshold) {
+                pooled.leakReported = true;
+                leaks.increment();
+                logger.log(Level.WARNING, "Possible connection leak in pool " + name + ": connection held for "
+                        + pooled.leaseMillis() + "ms", pooled.leaseTrace);
+            }
+        }
+    }
+
+    /**
+     * Close the pool and all idle connections. Leased connections are closed when returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveConnections() {
+        return leased.size();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getTotalConnections() {
+        return leased.size() + idle.size();
+    }
+
+    public int getMaximumSize() {
+        return settings.getMaximumSize();
+    }
+
+    public int getWaitingThreads() {
+        return waiting.get();
+    }
+
+    public long getTotalLeases() {
+        return totalLeases.sum();
+    }
+
+    public long getCreatedConnections() {
+        return created.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getLeaks() {
+        return leaks.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long leases = totalLeases.sum();
+        return leases == 0 ? 0 : totalWaitNanos.sum() / (double) leases / 1_000_000.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * One-line summary of the pool state
+     */
+    public String describe() {
+        return String.format("active=%d, idle=%d, max=%d, waiting=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d",
+                getActiveConnections(), getIdleConnections(), getMaximumSize(), getWaitingThreads(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getTimeouts());
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastUsedAt = createdAt;
+        private volatile long leasedAt;
+        private volatile Exception leaseTrace;
+        private volatile boolean leakReported;
+        private volatile Connection proxy;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        void lease(boolean captureTrace) {
+            leasedAt = System.currentTimeMillis();
+            leaseTrace = captureTrace ? new Exception("Connection leased here") : null;
+            leakReported = false;
+            proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        Connection proxy() {
+            return proxy;
+        }
+
+        void reset() throws SQLException {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            lastUsedAt = System.currentTimeMillis();
+        }
+
+        long ageMillis() {
+            return System.currentTimeMillis() - createdAt;
+        }
+
+        long idleMillis() {
+            return System.currentTimeMillis() - lastUsedAt;
+        }
+
+        long leaseMillis() {
+            return System.currentTimeMillis() - leasedAt;
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Error closing pooled connection", e);
+            }
+        }
+    }
+
+    /**
+     * Handler behind a single lease. Once closed it no longer reaches the physical connection,
+     * so a stale reference cannot interfere with a later lease of the same connection.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.xshards.storage;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary encoding for ItemStacks stored in shop_items.
+ *
+ * Layout: magic {@code 'X' 'I'}, format version, flags, then the tagged tree produced by
+ * {@link ItemStack#serialize()}, deflated when that is large enough to benefit. Nested
+ * {@link ConfigurationSerializable} values (item meta, enchantment data) keep their
+ * registered alias so they are rebuilt the same way YAML would rebuild them.
+ *
+ * Blobs written by the old Java-serialization path are still readable.
+ */
+public final class ItemStackCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    // Payloads at least this large are deflated if that makes them smaller
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    private static final byte MAGIC_0 = 'X';
+    private static final byte MAGIC_1 = 'I';
+    private static final int FLAG_DEFLATED = 1;
+
+    // Value tags
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_BOOLEAN = 6;
+    private static final int TAG_SHORT = 7;
+    private static final int TAG_BYTE = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_MAP = 10;
+    private static final int TAG_SERIALIZABLE = 11;
+
+    private ItemStackCodec() {
+    }
+
+    /**
+     * Encode an ItemStack in the current format
+     */
+    public static byte[] encode(ItemStack item) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(payloadBytes)) {
+            writeMap(out, item.serialize());
+        }
+        byte[] payload = payloadBytes.toByteArray();
+
+        int flags = 0;
+        if (payload.length >= COMPRESSION_THRESHOLD) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        byte[] blob = new byte[payload.length + 4];
+        blob[0] = MAGIC_0;
+        blob[1] = MAGIC_1;
+        blob[2] = (byte) FORMAT_VERSION;
+        blob[3] = (byte) flags;
+        System.arraycopy(payload, 0, blob, 4, payload.length);
+        return blob;
+    }
+
+    /**
+     * Decode a blob in either the current or the legacy Java-serialized format
+     */
+    public static ItemStack decode(byte[] data) throws IOException {
+        if (isLegacy(data)) {
+            return decodeLegacy(data);
+        }
+        if (data.length < 4 || data[0] != MAGIC_0 || data[1] != MAGIC_1) {
+            throw new IOException("Unknown item data format");
+        }
+
+        int version = data[2] & 0xFF;
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported item data version " + version);
+        }
+
+        InputStream payload = new ByteArrayInputStream(data, 4, data.length - 4);
+        if ((data[3] & FLAG_DEFLATED) != 0) {
+            payload = new InflaterInputStream(payload);
+        }
+
+        try (DataInputStream in = new DataInputStream(payload)) {
+            return ItemStack.deserialize(readMap(in));
+        }
+    }
+
+    /**
+     * Check if a blob was written by the old Java-serialization path
+     */
+    public static boolean isLegacy(byte[] data) {
+        // ObjectOutputStream stream magic 0xACED
+        return data.length >= 2 && (data[0] & 0xFF) == 0xAC && (data[1] & 0xFF) == 0xED;
+    }
+
+    /**
+     * Encode with the old Java-serialization path
+     */
+    public static byte[] encodeLegacy(ItemStack item) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream dataOutput = new ObjectOutputStream(outputStream)) {
+            dataOutput.writeObject(item.serialize());
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Decode a blob written by the old Java-serialization path
+     */
+    public static ItemStack decodeLegacy(byte[] data) throws IOException {
+        try (ObjectInputStream dataInput = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> serializedItem = (Map<String, Object>) dataInput.readObject();
+            return ItemStack.deserialize(serializedItem);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not read legacy item data", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(payload);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    // ---- Writing ----
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            writeVarInt(out, (Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            out.writeByte(TAG_SERIALIZABLE);
+            writeString(out, ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeMap(out, serializable.serialize());
+        } else if (value instanceof Map) {
+            out.writeByte(TAG_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            out.writeByte(TAG_LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else {
+            throw new IOException("Cannot encode value of type " + value.getClass().getName());
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        writeVarInt(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        // Zigzag so small negative numbers stay short
+        int encoded = (value << 1) ^ (value >> 31);
+        while ((encoded & ~0x7F) != 0) {
+            out.writeByte((encoded & 0x7F) | 0x80);
+            encoded >>>= 7;
+        }
+        out.writeByte(encoded);
+    }
+
+    // ---- Reading ----
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                return readVarInt(in);
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP:
+                return readMap(in);
+            case TAG_SERIALIZABLE: {
+                String alias = readString(in);
+                Map<String, Object> map = readMap(in);
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                return ConfigurationSerialization.deserializeObject(map);
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static Map<String, Object> readMap(DataInputStream in) throws IOException {
+        int size = readVarInt(in);
+        Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int encoded = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("VarInt too long");
+            }
+            b = in.readUnsignedByte();
+            encoded |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.xshards.storage;
+
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+
+/**
+ * A stored location. Keeps the world by name so storage never has to resolve worlds.
+ */
+public final class LocationRecord {
+
+    private final String world;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final float yaw;
+    private final float pitch;
+
+    public LocationRecord(String world, double x, double y, double z, float yaw, float pitch) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    public static LocationRecord of(Location location) {
+        return new LocationRecord(location.getWorld().getName(), location.getX(), location.getY(),
+                location.getZ(), location.getYaw(), location.getPitch());
+    }
+
+    /**
+     * Resolve to a Location, or null if the world is not loaded
+     */
+    public Location toLocation(Server server) {
+        World resolved = server.getWorld(world);
+        return resolved != null ? new Location(resolved, x, y, z, yaw, pitch) : null;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+}
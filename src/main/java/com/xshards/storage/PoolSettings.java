@@ -0,0 +1,94 @@
+package com.xshards.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Connection pool settings, read from {@code storage.pool}
+ */
+public class PoolSettings {
+
+    private final int maximumSize;
+    private final int minimumIdle;
+    private final long connectionTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validationIntervalMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMillis;
+    private final long housekeepingIntervalMillis;
+
+    public PoolSettings(int maximumSize, int minimumIdle, long connectionTimeoutMillis, long idleTimeoutMillis,
+                        long maxLifetimeMillis, long validationIntervalMillis, int validationTimeoutSeconds,
+                        long leakDetectionThresholdMillis, long housekeepingIntervalMillis) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.minimumIdle = Math.max(0, Math.min(minimumIdle, this.maximumSize));
+        this.connectionTimeoutMillis = Math.max(250, connectionTimeoutMillis);
+        this.idleTimeoutMillis = Math.max(0, idleTimeoutMillis);
+        this.maxLifetimeMillis = Math.max(0, maxLifetimeMillis);
+        this.validationIntervalMillis = Math.max(0, validationIntervalMillis);
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        this.leakDetectionThresholdMillis = Math.max(0, leakDetectionThresholdMillis);
+        this.housekeepingIntervalMillis = Math.max(1000, housekeepingIntervalMillis);
+    }
+
+    /**
+     * Read settings from a config section. Missing keys fall back to defaults.
+     *
+     * @param section the {@code storage.pool} section, may be null
+     * @param maximumSizeCap upper bound for the pool size (SQLite uses a single connection)
+     */
+    public static PoolSettings fromConfig(ConfigurationSection section, int maximumSizeCap) {
+        if (section == null) {
+            return new PoolSettings(Math.min(10, maximumSizeCap), Math.min(2, maximumSizeCap),
+                    5000, 600000, 1800000, 30000, 1, 0, 30000);
+        }
+
+        return new PoolSettings(
+                Math.min(section.getInt("maximum-size", 10), maximumSizeCap),
+                section.getInt("minimum-idle", 2),
+                section.getLong("connection-timeout", 5000),
+                section.getLong("idle-timeout", 600000),
+                section.getLong("max-lifetime", 1800000),
+                section.getLong("validation-interval", 30000),
+                section.getInt("validation-timeout", 1),
+                section.getLong("leak-detection-threshold", 0),
+                section.getLong("housekeeping-interval", 30000)
+        );
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public long getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getMaxLifetimeMillis() {
+        return maxLifetimeMillis;
+    }
+
+    public long getValidationIntervalMillis() {
+        return validationIntervalMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+}
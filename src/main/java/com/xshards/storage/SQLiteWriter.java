@@ -0,0 +1,277 @@
+package com.xshards.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single writer thread for SQLite.
+ *
+ * SQLite allows one writer at a time, so every write goes through this thread on its own
+ * connection. Whatever is queued when the thread wakes up is committed as one transaction;
+ * each write gets a savepoint so a failing write is rolled back on its own without taking
+ * the rest of the group with it.
+ */
+public class SQLiteWriter {
+
+    private final String name;
+    private final Logger logger;
+    private final ConnectionPool.ConnectionFactory factory;
+    private final BlockingQueue<Write> queue;
+    private final int maxBatchSize;
+    private final long offerTimeoutMillis;
+    private final BooleanSupplier mayWait;
+    private final Thread thread;
+    private volatile boolean shutdown = false;
+
+    // Only touched by the writer thread
+    private Connection connection;
+
+    // Statistics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder totalCommitNanos = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    /**
+     * @param mayWait whether the submitting thread may wait for room in a full queue
+     */
+    public SQLiteWriter(String name, Logger logger, ConnectionPool.ConnectionFactory factory,
+                        int queueCapacity, int maxBatchSize, long offerTimeoutMillis, BooleanSupplier mayWait) {
+        this.name = name;
+        this.logger = logger;
+        this.factory = factory;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.mayWait = mayWait;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a write. The future completes once the transaction containing it commits. If the
+     * queue is full it fails at once, unless the caller may wait for room.
+     */
+    public CompletableFuture<Void> submit(SqlWork work) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (shutdown) {
+            rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException("SQLite writer " + name + " is shut down"));
+            return future;
+        }
+
+        submitted.increment();
+        Write write = new Write(work, future);
+        try {
+            // The writer cannot hand work back to the caller, so a full queue refuses it; only
+            // callers off the tick threads wait for room
+            if (!queue.offer(write) && !(mayWait.getAsBoolean()
+                    && queue.offer(write, offerTimeoutMillis, TimeUnit.MILLISECONDS))) {
+                rejected.increment();
+                future.completeExceptionally(new RejectedExecutionException("SQLite write queue " + name + " is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            Write first;
+            try {
+                first = queue.poll(250, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = queue.poll();
+            }
+
+            if (first == null) {
+                if (shutdown) {
+                    break;
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+
+        closeConnection();
+    }
+
+    /**
+     * Run a group of writes in one transaction
+     */
+    private void writeBatch(List<Write> batch) {
+        List<Write> applied = new ArrayList<>(batch.size());
+        long start = System.nanoTime();
+
+        try {
+            Connection conn = connection();
+            conn.setAutoCommit(false);
+            try {
+                for (Write write : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        write.work.run(conn);
+                        conn.releaseSavepoint(savepoint);
+                        applied.add(write);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        failed.increment();
+                        write.future.completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.SEVERE, "SQLite writer " + name + " could not commit " + applied.size() + " writes", e);
+            for (Write write : applied) {
+                failed.increment();
+                write.future.completeExceptionally(e);
+            }
+            // Start over with a fresh connection next time
+            closeConnection();
+            return;
+        }
+
+        transactions.increment();
+        totalCommitNanos.add(System.nanoTime() - start);
+        written.add(applied.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        for (Write write : applied) {
+            write.future.complete(null);
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = factory.create();
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Error closing SQLite writer connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Stop accepting writes and wait for the queue to drain
+     *
+     * @return true if every queued write finished within the timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        shutdown = true;
+        try {
+            thread.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            logger.warning("SQLite writer " + name + " did not drain in time, " + queue.size() + " writes left");
+            return false;
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    /**
+     * Average number of writes committed per transaction
+     */
+    public double getAverageBatchSize() {
+        long commits = transactions.sum();
+        return commits == 0 ? 0 : written.sum() / (double) commits;
+    }
+
+    public int getLargestBatch() {
+        return largestBatch.get();
+    }
+
+    /**
+     * Average time to run and commit one transaction
+     */
+    public double getAverageCommitMillis() {
+        long commits = transactions.sum();
+        return commits == 0 ? 0 : totalCommitNanos.sum() / (double) commits / 1_000_000.0;
+    }
+
+    /**
+     * One-line summary of the writer state
+     */
+    public String describe() {
+        return String.format("queued=%d, transactions=%d, avgBatch=%.1f, maxBatch=%d, avgCommit=%.2fms, failed=%d, rejected=%d",
+                getQueueDepth(), getTransactions(), getAverageBatchSize(), getLargestBatch(),
+                getAverageCommitMillis(), getFailed(), getRejected());
+    }
+
+    /**
+     * A queued write and the future to complete once it is committed
+     */
+    private static final class Write {
+        private final SqlWork work;
+        private final CompletableFuture<Void> future;
+
+        Write(SqlWork work, CompletableFuture<Void> future) {
+            this.work = work;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.xshards.storage;
+
+/**
+ * A stored shop item with its encoded item data
+ */
+public final class ShopItemRecord {
+
+    private final int slot;
+    private final byte[] itemData;
+    private final double price;
+
+    public ShopItemRecord(int slot, byte[] itemData, double price) {
+        this.slot = slot;
+        this.itemData = itemData;
+        this.price = price;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public byte[] getItemData() {
+        return itemData;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+}
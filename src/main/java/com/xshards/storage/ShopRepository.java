@@ -0,0 +1,20 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stored shop items (shop_items)
+ */
+public interface ShopRepository {
+
+    List<ShopItemRecord> findAll() throws SQLException;
+
+    /**
+     * Insert or replace items by slot
+     */
+    void saveAll(Collection<ShopItemRecord> items) throws SQLException;
+
+    void delete(int slot) throws SQLException;
+}
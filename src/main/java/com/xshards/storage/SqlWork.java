@@ -0,0 +1,13 @@
+package com.xshards.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of database writes. It runs inside a transaction owned by the caller, so it must
+ * not commit, roll back or change auto-commit itself.
+ */
+@FunctionalInterface
+public interface SqlWork {
+    void run(Connection connection) throws SQLException;
+}
@@ -0,0 +1,34 @@
+package com.xshards.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * A persistence backend. DatabaseManager decides which thread and connection a unit of work
+ * runs on; the backend turns that into a {@link StorageSession} with its repositories.
+ */
+public interface StorageBackend {
+
+    /**
+     * Backend name as used in {@code storage.type}
+     */
+    String getType();
+
+    /**
+     * Whether sessions need a JDBC connection. Backends that return false are handed null.
+     */
+    boolean requiresConnection();
+
+    /**
+     * Create or migrate the schema. Only called for backends that require a connection, with
+     * a dedicated connection in auto-commit mode before any other work runs.
+     */
+    void createSchema(Connection connection, Logger logger) throws SQLException;
+
+    /**
+     * Open a session for one unit of work. For SQL backends everything in the session runs on
+     * the given connection, inside the caller's transaction for writes.
+     */
+    StorageSession openSession(Connection connection);
+}
@@ -0,0 +1,341 @@
+package com.xshards.storage;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded executor for database work.
+ *
+ * Work is spread over a fixed number of lanes, each with its own worker thread and bounded
+ * queue. Tasks submitted with the same key always land on the same lane, so two saves for
+ * the same player run in submission order.
+ */
+public class StorageExecutor {
+
+    /**
+     * What to do with a task when its lane is full. Keyed work never runs outside its lane,
+     * so a full lane never reorders saves or puts JDBC on the submitting thread.
+     */
+    public enum RejectionPolicy {
+        /**
+         * Wait for room in the queue, up to the configured offer timeout, on threads that may
+         * wait. Anywhere else, e.g. on a tick thread, fail at once as with ABORT.
+         */
+        BLOCK,
+        /** Drop the task and log a warning; a supplied future fails with a RejectedExecutionException */
+        DISCARD,
+        /** Throw a RejectedExecutionException */
+        ABORT;
+
+        /**
+         * Parse a policy name, falling back to BLOCK for unknown names including the removed
+         * caller-runs
+         */
+        public static RejectionPolicy fromConfig(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return BLOCK;
+            }
+        }
+    }
+
+    private final String name;
+    private final Logger logger;
+    private final Lane[] lanes;
+    private final RejectionPolicy rejectionPolicy;
+    private final long offerTimeoutMillis;
+    private final BooleanSupplier mayWait;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    // Statistics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    /**
+     * @param mayWait whether the submitting thread may wait for room in a full queue
+     */
+    public StorageExecutor(String name, Logger logger, int threads, int queueCapacity,
+                           RejectionPolicy rejectionPolicy, long offerTimeoutMillis, BooleanSupplier mayWait) {
+        this.name = name;
+        this.logger = logger;
+        this.rejectionPolicy = rejectionPolicy;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.mayWait = mayWait;
+
+        int laneCount = Math.max(1, threads);
+        int laneCapacity = Math.max(1, queueCapacity / laneCount);
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(name + "-" + i, laneCapacity);
+            lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * Run a task with no ordering requirement
+     */
+    public void execute(Runnable task) {
+        enqueue(lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)], task);
+    }
+
+    /**
+     * Run a task after every task previously submitted with the same key
+     */
+    public void execute(Object key, Runnable task) {
+        if (key == null) {
+            execute(task);
+            return;
+        }
+        enqueue(laneFor(key), task);
+    }
+
+    /**
+     * Run a task in key order and complete the future with its result
+     */
+    public <T> CompletableFuture<T> supply(Object key, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable runnable = () -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+
+        try {
+            Lane lane = key != null ? laneFor(key) : lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)];
+            if (!enqueue(lane, runnable)) {
+                // Discarded: fail the future so nothing waits on it forever
+                future.completeExceptionally(new RejectedExecutionException("Storage queue " + lane.name
+                        + " is full, task discarded"));
+            }
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private Lane laneFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    /**
+     * @return false if the task was discarded
+     */
+    private boolean enqueue(Lane lane, Runnable task) {
+        if (shutdown) {
+            rejected.increment();
+            throw new RejectedExecutionException("Storage executor " + name + " is shut down");
+        }
+
+        submitted.increment();
+        Task wrapped = new Task(task);
+        if (lane.queue.offer(wrapped)) {
+            return true;
+        }
+
+        switch (rejectionPolicy) {
+            case DISCARD:
+                rejected.increment();
+                logger.warning("Storage queue " + lane.name + " is full, discarding task (" + describe() + ")");
+                return false;
+            case ABORT:
+                rejected.increment();
+                throw new RejectedExecutionException("Storage queue " + lane.name + " is full");
+            case BLOCK:
+            default:
+                if (mayWait.getAsBoolean()) {
+                    try {
+                        if (lane.queue.offer(wrapped, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                            return true;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                rejected.increment();
+                throw new RejectedExecutionException("Storage queue " + lane.name + " is full");
+        }
+    }
+
+    /**
+     * Stop accepting work and wait for queued tasks to finish
+     *
+     * @return true if every lane drained within the timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        shutdown = true;
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean drained = true;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (lane.thread.isAlive()) {
+                drained = false;
+            }
+        }
+
+        if (!drained) {
+            logger.warning("Storage executor " + name + " did not drain in time, " + getQueueDepth() + " tasks left");
+        }
+        return drained;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    public int getQueueCapacity() {
+        int capacity = 0;
+        for (Lane lane : lanes) {
+            capacity += lane.queue.size() + lane.queue.remainingCapacity();
+        }
+        return capacity;
+    }
+
+    public int getThreads() {
+        return lanes.length;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Average time a task waited in the queue before it started
+     */
+    public double getAverageQueueMillis() {
+        long done = completed.sum() + failed.sum();
+        return done == 0 ? 0 : totalQueueNanos.sum() / (double) done / 1_000_000.0;
+    }
+
+    public double getMaxQueueMillis() {
+        return maxQueueNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Average time a task took to run
+     */
+    public double getAverageRunMillis() {
+        long done = completed.sum() + failed.sum();
+        return done == 0 ? 0 : totalRunNanos.sum() / (double) done / 1_000_000.0;
+    }
+
+    /**
+     * One-line summary of the executor state
+     */
+    public String describe() {
+        return String.format("queued=%d/%d, threads=%d, avgQueue=%.2fms, maxQueue=%.2fms, avgRun=%.2fms, rejected=%d",
+                getQueueDepth(), getQueueCapacity(), getThreads(), getAverageQueueMillis(), getMaxQueueMillis(),
+                getAverageRunMillis(), getRejected());
+    }
+
+    /**
+     * A queued task with its enqueue time
+     */
+    private final class Task implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedAt = System.nanoTime();
+
+        Task(Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long queued = start - enqueuedAt;
+            totalQueueNanos.add(queued);
+            maxQueueNanos.accumulateAndGet(queued, Math::max);
+
+            try {
+                delegate.run();
+                completed.increment();
+            } catch (Throwable t) {
+                failed.increment();
+                logger.log(Level.SEVERE, "Storage task failed", t);
+            } finally {
+                totalRunNanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * A worker thread with its own queue
+     */
+    private final class Lane implements Runnable {
+        private final String name;
+        private final BlockingQueue<Task> queue;
+        private final Thread thread;
+
+        Lane(String name, int capacity) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.poll(250, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    task = queue.poll();
+                }
+
+                if (task != null) {
+                    task.run();
+                } else if (shutdown) {
+                    // Queue drained after shutdown
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+
+/**
+ * Reads run through {@code DatabaseManager.read}
+ */
+@FunctionalInterface
+public interface StorageQuery<T> {
+    T run(StorageSession session) throws SQLException;
+}
@@ -0,0 +1,15 @@
+package com.xshards.storage;
+
+/**
+ * Repositories bound to one unit of work
+ */
+public interface StorageSession {
+
+    BalanceRepository balances();
+
+    ShopRepository shop();
+
+    AfkLocationRepository afkLocations();
+
+    AfkStatusRepository afkStatus();
+}
@@ -0,0 +1,11 @@
+package com.xshards.storage;
+
+import java.sql.SQLException;
+
+/**
+ * Writes run through {@code DatabaseManager.write}
+ */
+@FunctionalInterface
+public interface StorageWork {
+    void run(StorageSession session) throws SQLException;
+}
@@ -0,0 +1,267 @@
+package com.xshards.storage.memory;
+
+import com.xshards.storage.AfkLocationRepository;
+import com.xshards.storage.AfkStatusRepository;
+import com.xshards.storage.AfkZoneRecord;
+import com.xshards.storage.BalanceRepository;
+import com.xshards.storage.LocationRecord;
+import com.xshards.storage.ShopItemRecord;
+import com.xshards.storage.ShopRepository;
+import com.xshards.storage.StorageBackend;
+import com.xshards.storage.StorageSession;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Keeps everything in memory and loses it on shutdown. Meant for profiling and tests, where
+ * the game-side logic should run without a database. Writes are not transactional.
+ */
+public class MemoryStorageBackend implements StorageBackend, StorageSession {
+
+    private final Map<UUID, Integer> balances = new ConcurrentHashMap<>();
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<Integer, ShopItemRecord> shopItems = new ConcurrentHashMap<>();
+    private final Map<UUID, LocationRecord> playerLocations = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> afkSessions = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> afkAccrued = new ConcurrentHashMap<>();
+    private final Map<String, AfkZoneRecord> afkZones = new ConcurrentHashMap<>();
+
+    private final BalanceRepository balanceRepository = new Balances();
+    private final ShopRepository shopRepository = new Shop();
+    private final AfkLocationRepository afkLocationRepository = new AfkLocations();
+    private final AfkStatusRepository afkStatusRepository = new AfkStatus();
+
+    @Override
+    public String getType() {
+        return "memory";
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public void createSchema(Connection connection, Logger logger) {
+        // Nothing to create
+    }
+
+    @Override
+    public StorageSession openSession(Connection connection) {
+        return this;
+    }
+
+    @Override
+    public BalanceRepository balances() {
+        return balanceRepository;
+    }
+
+    @Override
+    public ShopRepository shop() {
+        return shopRepository;
+    }
+
+    @Override
+    public AfkLocationRepository afkLocations() {
+        return afkLocationRepository;
+    }
+
+    @Override
+    public AfkStatusRepository afkStatus() {
+        return afkStatusRepository;
+    }
+
+    private final class Balances implements BalanceRepository {
+        @Override
+        public Integer find(UUID uuid) {
+            return balances.get(uuid);
+        }
+
+        @Override
+        public Map<UUID, Integer> findAll(Collection<UUID> uuids) {
+            Map<UUID, Integer> found = new HashMap<>();
+            for (UUID uuid : uuids) {
+                Integer balance = balances.get(uuid);
+                if (balance != null) {
+                    found.put(uuid, balance);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public Map<String, UUID> findUuidsByName(Collection<String> playerNames) {
+            Set<String> wanted = new HashSet<>();
+            for (String name : playerNames) {
+                wanted.add(name.toLowerCase(Locale.ROOT));
+            }
+
+            Map<String, UUID> found = new HashMap<>();
+            for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                String name = entry.getValue().toLowerCase(Locale.ROOT);
+                if (wanted.contains(name)) {
+                    found.put(name, entry.getKey());
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void saveAll(Map<UUID, Integer> values, Map<UUID, String> playerNames, int batchSize) {
+            balances.putAll(values);
+            for (UUID uuid : values.keySet()) {
+                names.put(uuid, playerNames.get(uuid));
+            }
+        }
+
+        @Override
+        public void addAll(Map<UUID, Integer> deltas, Map<UUID, String> playerNames, int batchSize) {
+            for (Map.Entry<UUID, Integer> entry : deltas.entrySet()) {
+                balances.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                String name = playerNames.get(entry.getKey());
+                if (name != null && !name.isEmpty()) {
+                    names.put(entry.getKey(), name);
+                }
+            }
+        }
+
+        @Override
+        public boolean withdraw(UUID uuid, int amount) {
+            boolean[] taken = new boolean[1];
+            balances.computeIfPresent(uuid, (key, balance) -> {
+                if (balance < amount) {
+                    return balance;
+                }
+                taken[0] = true;
+                return balance - amount;
+            });
+            return taken[0];
+        }
+    }
+
+    private final class Shop implements ShopRepository {
+        @Override
+        public List<ShopItemRecord> findAll() {
+            return new ArrayList<>(shopItems.values());
+        }
+
+        @Override
+        public void saveAll(Collection<ShopItemRecord> items) {
+            for (ShopItemRecord item : items) {
+                shopItems.put(item.getSlot(), item);
+            }
+        }
+
+        @Override
+        public void delete(int slot) {
+            shopItems.remove(slot);
+        }
+    }
+
+    private final class AfkLocations implements AfkLocationRepository {
+        @Override
+        public List<AfkZoneRecord> findZones() {
+            List<AfkZoneRecord> zones = new ArrayList<>(afkZones.values());
+            zones.sort((a, b) -> a.getName().compareTo(b.getName()));
+            return zones;
+        }
+
+        @Override
+        public void saveZone(AfkZoneRecord zone) {
+            afkZones.put(zone.getName(), zone);
+        }
+
+        @Override
+        public boolean deleteZone(String name) {
+            return afkZones.remove(name) != null;
+        }
+
+        @Override
+        public LocationRecord findPlayerLocation(UUID uuid) {
+            return playerLocations.get(uuid);
+        }
+
+        @Override
+        public void savePlayerLocation(UUID uuid, LocationRecord location) {
+            playerLocations.put(uuid, location);
+        }
+
+        @Override
+        public void deletePlayerLocation(UUID uuid) {
+            playerLocations.remove(uuid);
+        }
+    }
+
+    private final class AfkStatus implements AfkStatusRepository {
+        @Override
+        public Map<UUID, Long> findActive() {
+            return new HashMap<>(afkSessions);
+        }
+
+        @Override
+        public boolean isAfk(UUID uuid) {
+            return afkSessions.containsKey(uuid);
+        }
+
+        @Override
+        public int findAccruedSeconds(UUID uuid) {
+            return afkAccrued.getOrDefault(uuid, 0);
+        }
+
+        @Override
+        public void save(UUID uuid, boolean afk, long startTime, int accruedSeconds) {
+            if (afk) {
+                afkSessions.put(uuid, startTime);
+            } else {
+                afkSessions.remove(uuid);
+            }
+            afkAccrued.put(uuid, accruedSeconds);
+        }
+
+        @Override
+        public void checkpoint(Map<UUID, Integer> accruedSeconds) {
+            for (Map.Entry<UUID, Integer> entry : accruedSeconds.entrySet()) {
+                if (afkSessions.containsKey(entry.getKey())) {
+                    afkAccrued.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public Map<UUID, Integer> settle(int intervalSeconds, int amount, Collection<UUID> resumed) {
+            int interval = Math.max(1, intervalSeconds);
+            int shards = Math.max(0, amount);
+            Map<UUID, Integer> owedShards = new HashMap<>();
+            for (UUID uuid : new ArrayList<>(afkSessions.keySet())) {
+                if (resumed.contains(uuid)) {
+                    continue;
+                }
+                int accrued = afkAccrued.getOrDefault(uuid, 0);
+                int owed = accrued * shards / interval;
+                if (owed > 0) {
+                    owedShards.put(uuid, owed);
+                }
+                afkAccrued.put(uuid, accrued - (shards == 0 ? 0 : owed * interval / shards));
+                afkSessions.remove(uuid);
+            }
+            return owedShards;
+        }
+
+        @Override
+        public void clear() {
+            afkSessions.clear();
+            afkAccrued.clear();
+        }
+    }
+}
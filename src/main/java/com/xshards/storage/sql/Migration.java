@@ -0,0 +1,61 @@
+package com.xshards.storage.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One schema version step, applied by {@link MigrationRunner}
+ */
+public final class Migration {
+
+    /**
+     * Schema changes for one version
+     */
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private final int version;
+    private final String description;
+    private final boolean transactional;
+    private final Step step;
+
+    private Migration(int version, String description, boolean transactional, Step step) {
+        this.version = version;
+        this.description = description;
+        this.transactional = transactional;
+        this.step = step;
+    }
+
+    /**
+     * A migration run in a single transaction together with its version record
+     */
+    public static Migration transactional(int version, String description, Step step) {
+        return new Migration(version, description, true, step);
+    }
+
+    /**
+     * A migration that commits on its own, e.g. DDL on MySQL or a chunked copy. It must be
+     * safe to run again if it was interrupted before its version was recorded.
+     */
+    public static Migration resumable(int version, String description, Step step) {
+        return new Migration(version, description, false, step);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    void apply(Connection connection) throws SQLException {
+        step.apply(connection);
+    }
+}
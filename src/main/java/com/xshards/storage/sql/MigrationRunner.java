@@ -0,0 +1,126 @@
+package com.xshards.storage.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Brings a database up to the latest schema version.
+ *
+ * Applied versions are recorded in {@code schema_version}. Pending migrations run in version
+ * order, each in its own transaction unless it is marked resumable.
+ */
+public class MigrationRunner {
+
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    public MigrationRunner(Logger logger, List<Migration> migrations) {
+        this.logger = logger;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(Migration::getVersion));
+    }
+
+    /**
+     * Apply every pending migration. The connection must be in auto-commit mode.
+     *
+     * @return the schema version afterwards
+     */
+    public int run(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description VARCHAR(128) NOT NULL, " +
+                    "applied_at BIGINT NOT NULL" +
+                    ")");
+        }
+
+        int current = getCurrentVersion(conn);
+        int latest = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+        if (current > latest) {
+            logger.warning("Database schema v" + current + " is newer than this version of the plugin (v"
+                    + latest + "), continuing without migrating");
+            return current;
+        }
+
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= current) {
+                continue;
+            }
+
+            logger.info("Migrating database schema to v" + migration.getVersion() + ": " + migration.getDescription());
+            long start = System.currentTimeMillis();
+
+            if (migration.isTransactional()) {
+                conn.setAutoCommit(false);
+                try {
+                    migration.apply(conn);
+                    recordVersion(conn, migration);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } else {
+                migration.apply(conn);
+                recordVersion(conn, migration);
+            }
+
+            current = migration.getVersion();
+            logger.info("Database schema is now v" + current + " (" + (System.currentTimeMillis() - start) + "ms)");
+        }
+        return current;
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+            stmt.setInt(1, migration.getVersion());
+            stmt.setString(2, migration.getDescription());
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Get the declared type of a column, or null if the table or column does not exist
+     */
+    static String columnType(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next() ? rs.getString("TYPE_NAME").toUpperCase(Locale.ROOT) : null;
+        }
+    }
+
+    /**
+     * Check if a table has an index with the given name
+     */
+    static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,287 @@
+package com.xshards.storage.sql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * MySQL / MariaDB backend
+ */
+public class MySQLStorageBackend extends SqlStorageBackend {
+
+    // Seconds to wait for another server that is migrating the same database
+    private static final int MIGRATION_LOCK_TIMEOUT = 600;
+
+    public MySQLStorageBackend(int migrationChunkSize) {
+        super(migrationChunkSize);
+    }
+
+    @Override
+    public String getType() {
+        return "mysql";
+    }
+
+    @Override
+    public void createSchema(Connection connection, Logger logger) throws SQLException {
+        // Servers sharing the database must not migrate it at the same time
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT GET_LOCK('xshards_schema', " + MIGRATION_LOCK_TIMEOUT + ")")) {
+            if (!rs.next() || rs.getInt(1) != 1) {
+                throw new SQLException("Timed out waiting for another server to finish migrating the database");
+            }
+        }
+
+        try {
+            super.createSchema(connection, logger);
+        } finally {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DO RELEASE_LOCK('xshards_schema')");
+            }
+        }
+    }
+
+    @Override
+    protected List<Migration> migrations(Logger logger) {
+        // MySQL commits DDL implicitly, so every step is written to be re-runnable
+        return Arrays.asList(
+                Migration.resumable(1, "Initial tables", this::createBaseline),
+                Migration.resumable(2, "Binary UUIDs, updated_at columns, drop idx_afk",
+                        conn -> migrateToV2(conn, logger)),
+                Migration.resumable(3, "Index player names", this::migrateToV3),
+                Migration.resumable(4, "Accrued AFK seconds", this::migrateToV4),
+                Migration.resumable(5, "Named AFK zones", this::migrateToV5)
+        );
+    }
+
+    /**
+     * v1: the tables as they were before versioning
+     */
+    private void createBaseline(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            // Player shards table
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_shards (" +
+                    "uuid VARCHAR(36) PRIMARY KEY, " +
+                    "player_name VARCHAR(16) NOT NULL, " +
+                    "shards INT NOT NULL DEFAULT 0, " +
+                    "INDEX idx_shards (shards)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // Shop items table
+            stmt.execute("CREATE TABLE IF NOT EXISTS shop_items (" +
+                    "slot INT PRIMARY KEY, " +
+                    "item_data MEDIUMBLOB NOT NULL, " +
+                    "price DOUBLE NOT NULL" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // AFK location table
+            stmt.execute("CREATE TABLE IF NOT EXISTS afk_location (" +
+                    "id INT PRIMARY KEY, " +
+                    "world VARCHAR(64) NOT NULL, " +
+                    "x DOUBLE NOT NULL, " +
+                    "y DOUBLE NOT NULL, " +
+                    "z DOUBLE NOT NULL" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // Player locations table
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_locations (" +
+                    "uuid VARCHAR(36) PRIMARY KEY, " +
+                    "world VARCHAR(64) NOT NULL, " +
+                    "x DOUBLE NOT NULL, " +
+                    "y DOUBLE NOT NULL, " +
+                    "z DOUBLE NOT NULL, " +
+                    "yaw FLOAT NOT NULL, " +
+                    "pitch FLOAT NOT NULL" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // AFK status table
+            stmt.execute("CREATE TABLE IF NOT EXISTS afk_status (" +
+                    "uuid VARCHAR(36) PRIMARY KEY, " +
+                    "is_afk BOOLEAN NOT NULL DEFAULT FALSE, " +
+                    "start_time BIGINT, " +
+                    "INDEX idx_afk (is_afk)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+    }
+
+    /**
+     * v2: UUID keys become BINARY(16) and every table gets updated_at. Tables keyed by UUID
+     * are rebuilt by copying into a new table in committed chunks and swapping it in with
+     * one RENAME, so the old table is never locked for the whole copy.
+     */
+    private void migrateToV2(Connection connection, Logger logger) throws SQLException {
+        rebuildWithBinaryUuid(connection, logger, "player_shards", "CREATE TABLE IF NOT EXISTS %s (" +
+                "uuid BINARY(16) PRIMARY KEY, " +
+                "player_name VARCHAR(16) NOT NULL, " +
+                "shards INT NOT NULL DEFAULT 0, " +
+                "updated_at BIGINT NOT NULL DEFAULT 0, " +
+                "INDEX idx_shards (shards), " +
+                "INDEX idx_updated (updated_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4", Arrays.asList("player_name", "shards"));
+
+        rebuildWithBinaryUuid(connection, logger, "player_locations", "CREATE TABLE IF NOT EXISTS %s (" +
+                "uuid BINARY(16) PRIMARY KEY, " +
+                "world VARCHAR(64) NOT NULL, " +
+                "x DOUBLE NOT NULL, " +
+                "y DOUBLE NOT NULL, " +
+                "z DOUBLE NOT NULL, " +
+                "yaw FLOAT NOT NULL, " +
+                "pitch FLOAT NOT NULL, " +
+                "updated_at BIGINT NOT NULL DEFAULT 0" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4", Arrays.asList("world", "x", "y", "z", "yaw", "pitch"));
+
+        // idx_afk is not rebuilt: nothing filters on the boolean alone
+        rebuildWithBinaryUuid(connection, logger, "afk_status", "CREATE TABLE IF NOT EXISTS %s (" +
+                "uuid BINARY(16) PRIMARY KEY, " +
+                "is_afk BOOLEAN NOT NULL DEFAULT FALSE, " +
+                "start_time BIGINT, " +
+                "updated_at BIGINT NOT NULL DEFAULT 0" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4", Arrays.asList("is_afk", "start_time"));
+
+        addUpdatedAt(connection, "shop_items");
+        addUpdatedAt(connection, "afk_location");
+    }
+
+    private void rebuildWithBinaryUuid(Connection connection, Logger logger, String table, String createSql,
+                                       List<String> columns) throws SQLException {
+        String target = table + "_v2";
+        String backup = table + "_v1";
+
+        try (Statement stmt = connection.createStatement()) {
+            String uuidType = MigrationRunner.columnType(connection, table, "uuid");
+            if (uuidType != null && uuidType.contains("BINARY")) {
+                // Swapped by an earlier run that stopped before recording the version
+                stmt.execute("DROP TABLE IF EXISTS " + backup);
+                return;
+            }
+
+            stmt.execute(String.format(createSql, target));
+            copyWithBinaryUuid(connection, table, target, columns, true, logger);
+
+            stmt.execute("RENAME TABLE " + table + " TO " + backup + ", " + target + " TO " + table);
+            stmt.execute("DROP TABLE " + backup);
+        }
+    }
+
+    /**
+     * v3: index for name lookups of offline players. The default utf8mb4 collation already
+     * ignores case.
+     */
+    private void migrateToV3(Connection connection) throws SQLException {
+        if (MigrationRunner.indexExists(connection, "player_shards", "idx_player_name")) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX idx_player_name ON player_shards (player_name)");
+        }
+    }
+
+    /**
+     * v4: seconds accrued toward the next AFK reward, kept across restarts
+     */
+    private void migrateToV4(Connection connection) throws SQLException {
+        if (MigrationRunner.columnType(connection, "afk_status", "accrued_seconds") != null) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE afk_status ADD COLUMN accrued_seconds INT NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * v5: named AFK zones with a capacity replace the single AFK location, which becomes the
+     * zone "default" with no limit. The old table is only dropped once its row is copied.
+     */
+    private void migrateToV5(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS afk_zones (" +
+                    "name VARCHAR(64) PRIMARY KEY, " +
+                    "world VARCHAR(64) NOT NULL, " +
+                    "x DOUBLE NOT NULL, " +
+                    "y DOUBLE NOT NULL, " +
+                    "z DOUBLE NOT NULL, " +
+                    "yaw FLOAT NOT NULL DEFAULT 0, " +
+                    "pitch FLOAT NOT NULL DEFAULT 0, " +
+                    "capacity INT NOT NULL DEFAULT 0, " +
+                    "updated_at BIGINT NOT NULL DEFAULT 0" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            if (MigrationRunner.columnType(connection, "afk_location", "id") != null) {
+                stmt.execute("INSERT IGNORE INTO afk_zones (name, world, x, y, z, updated_at) " +
+                        "SELECT 'default', world, x, y, z, updated_at FROM afk_location WHERE id = 1");
+                stmt.execute("DROP TABLE afk_location");
+            }
+        }
+    }
+
+    private void addUpdatedAt(Connection connection, String table) throws SQLException {
+        if (MigrationRunner.columnType(connection, table, "updated_at") != null) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN updated_at BIGINT NOT NULL DEFAULT 0");
+        }
+    }
+
+    @Override
+    String playerNameMatchSql() {
+        return "player_name";
+    }
+
+    @Override
+    String insertIgnoreSql() {
+        return "INSERT IGNORE";
+    }
+
+    @Override
+    String upsertBalanceSql() {
+        return "INSERT INTO player_shards (uuid, player_name, shards, updated_at) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE player_name=VALUES(player_name), shards=VALUES(shards), " +
+                "updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String addBalanceSql() {
+        return "INSERT INTO player_shards (uuid, player_name, shards, updated_at) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE player_name=COALESCE(NULLIF(VALUES(player_name), ''), player_name), " +
+                "shards=shards+VALUES(shards), updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String upsertShopItemSql() {
+        return "INSERT INTO shop_items (slot, item_data, price, updated_at) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE item_data=VALUES(item_data), price=VALUES(price), " +
+                "updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String upsertAfkZoneSql() {
+        return "INSERT INTO afk_zones (name, world, x, y, z, yaw, pitch, capacity, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE world=VALUES(world), x=VALUES(x), y=VALUES(y), z=VALUES(z), " +
+                "yaw=VALUES(yaw), pitch=VALUES(pitch), capacity=VALUES(capacity), updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String upsertPlayerLocationSql() {
+        return "INSERT INTO player_locations (uuid, world, x, y, z, yaw, pitch, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE world=VALUES(world), x=VALUES(x), y=VALUES(y), z=VALUES(z), " +
+                "yaw=VALUES(yaw), pitch=VALUES(pitch), updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String upsertAfkStatusSql() {
+        return "INSERT INTO afk_status (uuid, is_afk, start_time, accrued_seconds, updated_at) VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE is_afk=VALUES(is_afk), start_time=VALUES(start_time), " +
+                "accrued_seconds=VALUES(accrued_seconds), updated_at=VALUES(updated_at)";
+    }
+
+    @Override
+    String integerDivisionSql(String dividend, String divisor) {
+        return "(" + dividend + ") DIV (" + divisor + ")";
+    }
+}
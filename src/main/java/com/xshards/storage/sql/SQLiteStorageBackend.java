@@ -0,0 +1,232 @@
+package com.xshards.storage.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * SQLite backend
+ */
+public class SQLiteStorageBackend extends SqlStorageBackend {
+
+    public SQLiteStorageBackend(int migrationChunkSize) {
+        super(migrationChunkSize);
+    }
+
+    @Override
+    public String getType() {
+        return "sqlite";
+    }
+
+    @Override
+    protected List<Migration> migrations(Logger logger) {
+        return Arrays.asList(
+                Migration.transactional(1, "Initial tables", this::createBaseline),
+                Migration.transactional(2, "Binary UUIDs, updated_at columns, drop idx_afk",
+                        conn -> migrateToV2(conn, logger)),
+                Migration.transactional(3, "Index player names", this::migrateToV3),
+                Migration.transactional(4, "Accrued AFK seconds", this::migrateToV4),
+                Migration.transactional(5, "Named AFK zones", this::migrateToV5)
+        );
+    }
+
+    /**
+     * v1: the tables as they were before versioning
+     */
+    private void createBaseline(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            // Player shards table
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_shards (" +
+                    "uuid TEXT PRIMARY KEY, " +
+                    "player_name TEXT NOT NULL, " +
+                    "shards INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_shards ON player_shards(shards)");
+
+            // Shop items table
+            stmt.execute("CREATE TABLE IF NOT EXISTS shop_items (" +
+                    "slot INTEGER PRIMARY KEY, " +
+                    "item_data BLOB NOT NULL, " +
+                    "price REAL NOT NULL" +
+                    ")");
+
+            // AFK location table
+            stmt.execute("CREATE TABLE IF NOT EXISTS afk_location (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "world TEXT NOT NULL, " +
+                    "x REAL NOT NULL, " +
+                    "y REAL NOT NULL, " +
+                    "z REAL NOT NULL" +
+                    ")");
+
+            // Player locations table
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_locations (" +
+                    "uuid TEXT PRIMARY KEY, " +
+                    "world TEXT NOT NULL, " +
+                    "x REAL NOT NULL, " +
+                    "y REAL NOT NULL, " +
+                    "z REAL NOT NULL, " +
+                    "yaw REAL NOT NULL, " +
+                    "pitch REAL NOT NULL" +
+                    ")");
+
+            // AFK status table
+            stmt.execute("CREATE TABLE IF NOT EXISTS afk_status (" +
+                    "uuid TEXT PRIMARY KEY, " +
+                    "is_afk INTEGER NOT NULL DEFAULT 0, " +
+                    "start_time INTEGER" +
+                    ")");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_afk ON afk_status(is_afk)");
+        }
+    }
+
+    /**
+     * v2: UUID keys become 16-byte blobs and every table gets updated_at. SQLite cannot
+     * change a column type, so tables keyed by UUID are rebuilt; the whole step runs in one
+     * transaction.
+     */
+    private void migrateToV2(Connection connection, Logger logger) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP INDEX IF EXISTS idx_afk");
+            stmt.execute("DROP INDEX IF EXISTS idx_shards");
+        }
+
+        rebuildWithBinaryUuid(connection, logger, "player_shards", "CREATE TABLE %s (" +
+                "uuid BLOB PRIMARY KEY, " +
+                "player_name TEXT NOT NULL, " +
+                "shards INTEGER NOT NULL DEFAULT 0, " +
+                "updated_at INTEGER NOT NULL DEFAULT 0" +
+                ")", Arrays.asList("player_name", "shards"));
+
+        rebuildWithBinaryUuid(connection, logger, "player_locations", "CREATE TABLE %s (" +
+                "uuid BLOB PRIMARY KEY, " +
+                "world TEXT NOT NULL, " +
+                "x REAL NOT NULL, " +
+                "y REAL NOT NULL, " +
+                "z REAL NOT NULL, " +
+                "yaw REAL NOT NULL, " +
+                "pitch REAL NOT NULL, " +
+                "updated_at INTEGER NOT NULL DEFAULT 0" +
+                ")", Arrays.asList("world", "x", "y", "z", "yaw", "pitch"));
+
+        rebuildWithBinaryUuid(connection, logger, "afk_status", "CREATE TABLE %s (" +
+                "uuid BLOB PRIMARY KEY, " +
+                "is_afk INTEGER NOT NULL DEFAULT 0, " +
+                "start_time INTEGER, " +
+                "updated_at INTEGER NOT NULL DEFAULT 0" +
+                ")", Arrays.asList("is_afk", "start_time"));
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX idx_shards ON player_shards(shards)");
+            stmt.execute("CREATE INDEX idx_updated ON player_shards(updated_at)");
+            stmt.execute("ALTER TABLE shop_items ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+            stmt.execute("ALTER TABLE afk_location ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * v3: case-insensitive index for name lookups of offline players
+     */
+    private void migrateToV3(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_name ON player_shards(player_name COLLATE NOCASE)");
+        }
+    }
+
+    /**
+     * v4: seconds accrued toward the next AFK reward, kept across restarts
+     */
+    private void migrateToV4(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE afk_status ADD COLUMN accrued_seconds INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    /**
+     * v5: named AFK zones with a capacity replace the single AFK location, which becomes the
+     * zone "default" with no limit
+     */
+    private void migrateToV5(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE afk_zones (" +
+                    "name TEXT PRIMARY KEY, " +
+                    "world TEXT NOT NULL, " +
+                    "x REAL NOT NULL, " +
+                    "y REAL NOT NULL, " +
+                    "z REAL NOT NULL, " +
+                    "yaw REAL NOT NULL DEFAULT 0, " +
+                    "pitch REAL NOT NULL DEFAULT 0, " +
+                    "capacity INTEGER NOT NULL DEFAULT 0, " +
+                    "updated_at INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+            stmt.execute("INSERT INTO afk_zones (name, world, x, y, z, updated_at) " +
+                    "SELECT 'default', world, x, y, z, updated_at FROM afk_location WHERE id = 1");
+            stmt.execute("DROP TABLE afk_location");
+        }
+    }
+
+    private void rebuildWithBinaryUuid(Connection connection, Logger logger, String table, String createSql,
+                                       List<String> columns) throws SQLException {
+        String target = table + "_v2";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(String.format(createSql, target));
+            copyWithBinaryUuid(connection, table, target, columns, false, logger);
+            stmt.execute("DROP TABLE " + table);
+            stmt.execute("ALTER TABLE " + target + " RENAME TO " + table);
+        }
+    }
+
+    @Override
+    String playerNameMatchSql() {
+        return "player_name COLLATE NOCASE";
+    }
+
+    @Override
+    String insertIgnoreSql() {
+        return "INSERT OR IGNORE";
+    }
+
+    @Override
+    String upsertBalanceSql() {
+        return "INSERT OR REPLACE INTO player_shards (uuid, player_name, shards, updated_at) VALUES (?, ?, ?, ?)";
+    }
+
+    @Override
+    String addBalanceSql() {
+        return "INSERT INTO player_shards (uuid, player_name, shards, updated_at) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(uuid) DO UPDATE SET player_name=COALESCE(NULLIF(excluded.player_name, ''), player_name), " +
+                "shards=shards+excluded.shards, updated_at=excluded.updated_at";
+    }
+
+    @Override
+    String upsertShopItemSql() {
+        return "INSERT OR REPLACE INTO shop_items (slot, item_data, price, updated_at) VALUES (?, ?, ?, ?)";
+    }
+
+    @Override
+    String upsertAfkZoneSql() {
+        return "INSERT OR REPLACE INTO afk_zones (name, world, x, y, z, yaw, pitch, capacity, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    String upsertPlayerLocationSql() {
+        return "INSERT OR REPLACE INTO player_locations (uuid, world, x, y, z, yaw, pitch, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    String upsertAfkStatusSql() {
+        return "INSERT OR REPLACE INTO afk_status (uuid, is_afk, start_time, accrued_seconds, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    String integerDivisionSql(String dividend, String divisor) {
+        // Both operands are integers, so SQLite truncates
+        return "(" + dividend + ") / (" + divisor + ")";
+    }
+}
@@ -0,0 +1,104 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.AfkLocationRepository;
+import com.xshards.storage.AfkZoneRecord;
+import com.xshards.storage.LocationRecord;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class SqlAfkLocationRepository implements AfkLocationRepository {
+
+    private final Connection connection;
+    private final SqlStorageBackend backend;
+
+    SqlAfkLocationRepository(Connection connection, SqlStorageBackend backend) {
+        this.connection = connection;
+        this.backend = backend;
+    }
+
+    @Override
+    public List<AfkZoneRecord> findZones() throws SQLException {
+        List<AfkZoneRecord> zones = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT name, world, x, y, z, yaw, pitch, capacity FROM afk_zones ORDER BY name");
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                LocationRecord location = new LocationRecord(rs.getString("world"), rs.getDouble("x"),
+                        rs.getDouble("y"), rs.getDouble("z"), rs.getFloat("yaw"), rs.getFloat("pitch"));
+                zones.add(new AfkZoneRecord(rs.getString("name"), location, rs.getInt("capacity")));
+            }
+        }
+        return zones;
+    }
+
+    @Override
+    public void saveZone(AfkZoneRecord zone) throws SQLException {
+        LocationRecord location = zone.getLocation();
+        try (PreparedStatement stmt = connection.prepareStatement(backend.upsertAfkZoneSql())) {
+            stmt.setString(1, zone.getName());
+            stmt.setString(2, location.getWorld());
+            stmt.setDouble(3, location.getX());
+            stmt.setDouble(4, location.getY());
+            stmt.setDouble(5, location.getZ());
+            stmt.setFloat(6, location.getYaw());
+            stmt.setFloat(7, location.getPitch());
+            stmt.setInt(8, zone.getCapacity());
+            stmt.setLong(9, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean deleteZone(String name) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM afk_zones WHERE name = ?")) {
+            stmt.setString(1, name);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public LocationRecord findPlayerLocation(UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT world, x, y, z, yaw, pitch FROM player_locations WHERE uuid = ?")) {
+
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new LocationRecord(rs.getString("world"), rs.getDouble("x"), rs.getDouble("y"),
+                            rs.getDouble("z"), rs.getFloat("yaw"), rs.getFloat("pitch"));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void savePlayerLocation(UUID uuid, LocationRecord location) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(backend.upsertPlayerLocationSql())) {
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            stmt.setString(2, location.getWorld());
+            stmt.setDouble(3, location.getX());
+            stmt.setDouble(4, location.getY());
+            stmt.setDouble(5, location.getZ());
+            stmt.setFloat(6, location.getYaw());
+            stmt.setFloat(7, location.getPitch());
+            stmt.setLong(8, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void deletePlayerLocation(UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM player_locations WHERE uuid = ?")) {
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            stmt.executeUpdate();
+        }
+    }
+}
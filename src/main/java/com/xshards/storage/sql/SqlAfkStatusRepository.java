@@ -0,0 +1,155 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.AfkStatusRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+class SqlAfkStatusRepository implements AfkStatusRepository {
+
+    // is_afk is an INTEGER in SQLite and a BOOLEAN in MySQL
+    private static final String ACTIVE = "(is_afk = 1 OR is_afk = TRUE)";
+
+    private final Connection connection;
+    private final SqlStorageBackend backend;
+
+    SqlAfkStatusRepository(Connection connection, SqlStorageBackend backend) {
+        this.connection = connection;
+        this.backend = backend;
+    }
+
+    @Override
+    public Map<UUID, Long> findActive() throws SQLException {
+        Map<UUID, Long> sessions = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT uuid, start_time FROM afk_status WHERE " + ACTIVE);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                sessions.put(UuidCodec.fromBytes(rs.getBytes("uuid")), rs.getLong("start_time"));
+            }
+        }
+        return sessions;
+    }
+
+    @Override
+    public boolean isAfk(UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT is_afk FROM afk_status WHERE uuid = ?")) {
+
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean("is_afk");
+            }
+        }
+    }
+
+    @Override
+    public int findAccruedSeconds(UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT accrued_seconds FROM afk_status WHERE uuid = ?")) {
+
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("accrued_seconds") : 0;
+            }
+        }
+    }
+
+    @Override
+    public void save(UUID uuid, boolean afk, long startTime, int accruedSeconds) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(backend.upsertAfkStatusSql())) {
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            stmt.setBoolean(2, afk);
+            stmt.setLong(3, startTime);
+            stmt.setInt(4, accruedSeconds);
+            stmt.setLong(5, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void checkpoint(Map<UUID, Integer> accruedSeconds) throws SQLException {
+        if (accruedSeconds.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE afk_status SET accrued_seconds = ?, updated_at = ? WHERE uuid = ? AND " + ACTIVE)) {
+
+            for (Map.Entry<UUID, Integer> entry : accruedSeconds.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setLong(2, now);
+                stmt.setBytes(3, UuidCodec.toBytes(entry.getKey()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> settle(int intervalSeconds, int amount, Collection<UUID> resumed) throws SQLException {
+        int interval = Math.max(1, intervalSeconds);
+        int shards = Math.max(0, amount);
+        String owed = backend.integerDivisionSql("accrued_seconds * " + shards, String.valueOf(interval));
+
+        StringBuilder filter = new StringBuilder(ACTIVE);
+        if (!resumed.isEmpty()) {
+            filter.append(" AND uuid NOT IN (?");
+            for (int i = 1; i < resumed.size(); i++) {
+                filter.append(", ?");
+            }
+            filter.append(')');
+        }
+
+        // What each closed session earned, then keep only the seconds it did not pay for
+        Map<UUID, Integer> owedShards = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT uuid, " + owed + " AS owed FROM afk_status WHERE " + filter)) {
+
+            bindUuids(stmt, 1, resumed);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int value = rs.getInt("owed");
+                    if (value > 0) {
+                        owedShards.put(UuidCodec.fromBytes(rs.getBytes("uuid")), value);
+                    }
+                }
+            }
+        }
+
+        String paidSeconds = shards == 0 ? "0"
+                : backend.integerDivisionSql("(" + owed + ") * " + interval, String.valueOf(shards));
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE afk_status SET accrued_seconds = accrued_seconds - " + paidSeconds
+                        + ", is_afk = ?, updated_at = ? WHERE " + filter)) {
+
+            stmt.setBoolean(1, false);
+            stmt.setLong(2, System.currentTimeMillis());
+            bindUuids(stmt, 3, resumed);
+            stmt.executeUpdate();
+        }
+        return owedShards;
+    }
+
+    private static void bindUuids(PreparedStatement stmt, int first, Collection<UUID> uuids) throws SQLException {
+        int index = first;
+        for (UUID uuid : uuids) {
+            stmt.setBytes(index++, UuidCodec.toBytes(uuid));
+        }
+    }
+
+    @Override
+    public void clear() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM afk_status")) {
+            stmt.executeUpdate();
+        }
+    }
+}
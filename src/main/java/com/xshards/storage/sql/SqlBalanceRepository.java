@@ -0,0 +1,176 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.BalanceRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+class SqlBalanceRepository implements BalanceRepository {
+
+    // UUIDs per IN (...) lookup, well below every driver's parameter limit
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
+    private final Connection connection;
+    private final SqlStorageBackend backend;
+
+    SqlBalanceRepository(Connection connection, SqlStorageBackend backend) {
+        this.connection = connection;
+        this.backend = backend;
+    }
+
+    @Override
+    public Integer find(UUID uuid) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT shards FROM player_shards WHERE uuid = ?")) {
+
+            stmt.setBytes(1, UuidCodec.toBytes(uuid));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("shards") : null;
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> findAll(Collection<UUID> uuids) throws SQLException {
+        Map<UUID, Integer> balances = new HashMap<>();
+        List<UUID> chunk = new ArrayList<>(Math.min(uuids.size(), LOOKUP_CHUNK_SIZE));
+        for (UUID uuid : uuids) {
+            chunk.add(uuid);
+            if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                findChunk(chunk, balances);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            findChunk(chunk, balances);
+        }
+        return balances;
+    }
+
+    private void findChunk(List<UUID> chunk, Map<UUID, Integer> balances) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT uuid, shards FROM player_shards WHERE uuid IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                stmt.setBytes(i + 1, UuidCodec.toBytes(chunk.get(i)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(UuidCodec.fromBytes(rs.getBytes("uuid")), rs.getInt("shards"));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, UUID> findUuidsByName(Collection<String> names) throws SQLException {
+        Map<String, UUID> uuids = new HashMap<>();
+        Map<String, Long> updated = new HashMap<>();
+        List<String> chunk = new ArrayList<>(Math.min(names.size(), LOOKUP_CHUNK_SIZE));
+        for (String name : names) {
+            chunk.add(name);
+            if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                findNameChunk(chunk, uuids, updated);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            findNameChunk(chunk, uuids, updated);
+        }
+        return uuids;
+    }
+
+    private void findNameChunk(List<String> chunk, Map<String, UUID> uuids, Map<String, Long> updated)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT uuid, player_name, updated_at FROM player_shards WHERE ")
+                .append(backend.playerNameMatchSql()).append(" IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                stmt.setString(i + 1, chunk.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("player_name").toLowerCase(Locale.ROOT);
+                    long updatedAt = rs.getLong("updated_at");
+                    Long newest = updated.get(name);
+                    if (newest == null || updatedAt > newest) {
+                        updated.put(name, updatedAt);
+                        uuids.put(name, UuidCodec.fromBytes(rs.getBytes("uuid")));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void saveAll(Map<UUID, Integer> balances, Map<UUID, String> names, int batchSize) throws SQLException {
+        writeBatch(backend.upsertBalanceSql(), balances, names, batchSize);
+    }
+
+    @Override
+    public void addAll(Map<UUID, Integer> deltas, Map<UUID, String> names, int batchSize) throws SQLException {
+        writeBatch(backend.addBalanceSql(), deltas, names, batchSize);
+    }
+
+    @Override
+    public boolean withdraw(UUID uuid, int amount) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE player_shards SET shards = shards - ?, updated_at = ? WHERE uuid = ? AND shards >= ?")) {
+
+            stmt.setInt(1, amount);
+            stmt.setLong(2, System.currentTimeMillis());
+            stmt.setBytes(3, UuidCodec.toBytes(uuid));
+            stmt.setInt(4, amount);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Add one statement per balance to a batch, executed every batchSize rows
+     */
+    private void writeBatch(String sql, Map<UUID, Integer> balances, Map<UUID, String> names,
+                            int batchSize) throws SQLException {
+        if (balances.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (Map.Entry<UUID, Integer> entry : balances.entrySet()) {
+                stmt.setBytes(1, UuidCodec.toBytes(entry.getKey()));
+                // An empty name keeps the stored one, see addBalanceSql
+                stmt.setString(2, names.getOrDefault(entry.getKey(), ""));
+                stmt.setInt(3, entry.getValue());
+                stmt.setLong(4, now);
+                stmt.addBatch();
+
+                if (++pending >= batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.ShopItemRecord;
+import com.xshards.storage.ShopRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+class SqlShopRepository implements ShopRepository {
+
+    private final Connection connection;
+    private final SqlStorageBackend backend;
+
+    SqlShopRepository(Connection connection, SqlStorageBackend backend) {
+        this.connection = connection;
+        this.backend = backend;
+    }
+
+    @Override
+    public List<ShopItemRecord> findAll() throws SQLException {
+        List<ShopItemRecord> items = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT slot, item_data, price FROM shop_items");
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                items.add(new ShopItemRecord(rs.getInt("slot"), rs.getBytes("item_data"), rs.getDouble("price")));
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public void saveAll(Collection<ShopItemRecord> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = connection.prepareStatement(backend.upsertShopItemSql())) {
+            for (ShopItemRecord item : items) {
+                stmt.setInt(1, item.getSlot());
+                stmt.setBytes(2, item.getItemData());
+                stmt.setDouble(3, item.getPrice());
+                stmt.setLong(4, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public void delete(int slot) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM shop_items WHERE slot = ?")) {
+            stmt.setInt(1, slot);
+            stmt.executeUpdate();
+        }
+    }
+}
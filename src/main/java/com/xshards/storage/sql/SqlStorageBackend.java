@@ -0,0 +1,156 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.StorageBackend;
+import com.xshards.storage.StorageSession;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Shared JDBC backend. Queries that are the same in every dialect live in the repositories;
+ * subclasses supply the upserts and the schema.
+ */
+public abstract class SqlStorageBackend implements StorageBackend {
+
+    /** Latest schema version shipped with the plugin */
+    public static final int SCHEMA_VERSION = 5;
+
+    // Rows copied per chunk when a migration rebuilds a table
+    protected final int migrationChunkSize;
+
+    protected SqlStorageBackend(int migrationChunkSize) {
+        this.migrationChunkSize = Math.max(100, migrationChunkSize);
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return true;
+    }
+
+    @Override
+    public void createSchema(Connection connection, Logger logger) throws SQLException {
+        new MigrationRunner(logger, migrations(logger)).run(connection);
+    }
+
+    /**
+     * Every schema version for this dialect, starting with the v1 baseline
+     */
+    protected abstract List<Migration> migrations(Logger logger);
+
+    /**
+     * Copy a v1 table keyed by text UUIDs into a v2 table keyed by binary UUIDs, paging
+     * through the source by key so no single statement touches the whole table
+     *
+     * @param columns columns to copy besides uuid; updated_at is set to now
+     * @param commitEachChunk commit after every chunk instead of leaving it to the caller
+     */
+    protected void copyWithBinaryUuid(Connection conn, String source, String target, List<String> columns,
+                                      boolean commitEachChunk, Logger logger) throws SQLException {
+        String columnList = String.join(", ", columns);
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(", ?");
+        }
+
+        String select = "SELECT uuid, " + columnList + " FROM " + source + " WHERE uuid > ? ORDER BY uuid LIMIT ?";
+        String insert = insertIgnoreSql() + " INTO " + target + " (uuid, " + columnList + ", updated_at) VALUES ("
+                + placeholders + ", ?)";
+
+        long now = System.currentTimeMillis();
+        long copied = 0;
+        long skipped = 0;
+        int chunks = 0;
+        String lastKey = "";
+        boolean autoCommit = conn.getAutoCommit();
+        if (commitEachChunk) {
+            conn.setAutoCommit(false);
+        }
+
+        try (PreparedStatement read = conn.prepareStatement(select);
+             PreparedStatement write = conn.prepareStatement(insert)) {
+            while (true) {
+                int rows = 0;
+                read.setString(1, lastKey);
+                read.setInt(2, migrationChunkSize);
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastKey = rs.getString(1);
+                        byte[] uuid = UuidCodec.fromText(lastKey);
+                        if (uuid == null) {
+                            skipped++;
+                            continue;
+                        }
+
+                        write.setBytes(1, uuid);
+                        for (int i = 0; i < columns.size(); i++) {
+                            write.setObject(i + 2, rs.getObject(i + 2));
+                        }
+                        write.setLong(columns.size() + 2, now);
+                        write.addBatch();
+                        copied++;
+                    }
+                }
+
+                write.executeBatch();
+                if (commitEachChunk) {
+                    conn.commit();
+                }
+                if (rows < migrationChunkSize) {
+                    break;
+                }
+                if (++chunks % 20 == 0) {
+                    logger.info("Copied " + copied + " rows from " + source + "...");
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (commitEachChunk) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (commitEachChunk) {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+
+        logger.info("Copied " + copied + " rows from " + source
+                + (skipped > 0 ? ", skipped " + skipped + " with a malformed uuid" : ""));
+    }
+
+    /** Insert statement prefix that skips rows whose key already exists */
+    abstract String insertIgnoreSql();
+
+    @Override
+    public StorageSession openSession(Connection connection) {
+        return new SqlStorageSession(connection, this);
+    }
+
+    /** Insert or replace a balance: uuid, player_name, shards, updated_at */
+    abstract String upsertBalanceSql();
+
+    /** Column expression compared with player names, matching idx_player_name and ignoring case */
+    abstract String playerNameMatchSql();
+
+    /** Insert a balance or add to the stored one: uuid, player_name, shards, updated_at. An empty name keeps the stored one. */
+    abstract String addBalanceSql();
+
+    /** Insert or replace a shop item: slot, item_data, price, updated_at */
+    abstract String upsertShopItemSql();
+
+    /** Insert or replace an AFK zone by name: name, world, x, y, z, yaw, pitch, capacity, updated_at */
+    abstract String upsertAfkZoneSql();
+
+    /** Insert or replace a return location: uuid, world, x, y, z, yaw, pitch, updated_at */
+    abstract String upsertPlayerLocationSql();
+
+    /** Insert or replace an AFK status: uuid, is_afk, start_time, accrued_seconds, updated_at */
+    abstract String upsertAfkStatusSql();
+
+    /** Integer division of two integer expressions, rounding down for non-negative operands */
+    abstract String integerDivisionSql(String dividend, String divisor);
+}
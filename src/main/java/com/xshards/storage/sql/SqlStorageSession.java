@@ -0,0 +1,43 @@
+package com.xshards.storage.sql;
+
+import com.xshards.storage.AfkLocationRepository;
+import com.xshards.storage.AfkStatusRepository;
+import com.xshards.storage.BalanceRepository;
+import com.xshards.storage.ShopRepository;
+import com.xshards.storage.StorageSession;
+
+import java.sql.Connection;
+
+/**
+ * Repositories running on one connection
+ */
+class SqlStorageSession implements StorageSession {
+
+    private final Connection connection;
+    private final SqlStorageBackend backend;
+
+    SqlStorageSession(Connection connection, SqlStorageBackend backend) {
+        this.connection = connection;
+        this.backend = backend;
+    }
+
+    @Override
+    public BalanceRepository balances() {
+        return new SqlBalanceRepository(connection, backend);
+    }
+
+    @Override
+    public ShopRepository shop() {
+        return new SqlShopRepository(connection, backend);
+    }
+
+    @Override
+    public AfkLocationRepository afkLocations() {
+        return new SqlAfkLocationRepository(connection, backend);
+    }
+
+    @Override
+    public AfkStatusRepository afkStatus() {
+        return new SqlAfkStatusRepository(connection, backend);
+    }
+}
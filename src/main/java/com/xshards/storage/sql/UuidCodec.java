@@ -0,0 +1,36 @@
+package com.xshards.storage.sql;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUIDs are stored as 16 raw bytes since schema v2
+ */
+final class UuidCodec {
+
+    private UuidCodec() {
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Convert a v1 text UUID, or return null if it is malformed
+     */
+    static byte[] fromText(String text) {
+        try {
+            return toBytes(UUID.fromString(text.trim()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+}
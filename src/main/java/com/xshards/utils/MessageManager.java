@@ -5,6 +5,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -118,6 +119,10 @@ public class MessageManager {
         send(player, "afk.no-location");
     }
 
+    public void sendAfkZonesFull(Player player) {
+        send(player, "afk.zones-full");
+    }
+
     public void sendAfkEarned(Player player, int amount) {
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("amount", String.valueOf(amount));
@@ -144,13 +149,20 @@ public class MessageManager {
         send(player, "afk.auto-stopped");
     }
 
-    public void sendAdminLocationSet(Player player) {
-        send(player, "admin.location-set");
+    public void sendAdminLocationSet(Player player, String zone, int capacity) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("zone", zone);
+        placeholders.put("capacity", capacity > 0 ? String.valueOf(capacity) : getMessage("admin.unlimited"));
+        send(player, "admin.location-set", placeholders);
         sendRaw(player, "admin.recommend-custom-world");
     }
 
-    public void sendAdminLocationRemoved(Player player) {
-        send(player, "admin.location-removed");
+    public void sendAdminLocationRemoved(CommandSender sender, String zone) {
+        send(sender, "admin.location-removed", Collections.singletonMap("zone", zone));
+    }
+
+    public void sendAdminZoneNotFound(CommandSender sender, String zone) {
+        send(sender, "admin.zone-not-found", Collections.singletonMap("zone", zone));
     }
 
     public void sendAdminNetherEndBlocked(Player player) {
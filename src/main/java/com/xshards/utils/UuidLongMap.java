@@ -0,0 +1,487 @@
+package com.xshards.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Concurrent map from UUID to a primitive long, without boxing.
+ *
+ * Keys are stored as their two longs in open-addressed tables with linear probing. The map is
+ * split into stripes, each guarded by its own {@link StampedLock}:
+ * <ul>
+ *     <li>reads are optimistic and take no lock unless a structural change interferes</li>
+ *     <li>updates of an existing entry hold the stripe's read lock and change the value with a
+ *     CAS, so they only exclude inserts, removals and resizes</li>
+ *     <li>inserts, removals, resizes and {@link #compute} hold the stripe's write lock</li>
+ * </ul>
+ */
+public final class UuidLongMap {
+
+    /**
+     * Remapping function for {@link #compute}
+     */
+    @FunctionalInterface
+    public interface Remapper {
+        /**
+         * @param present whether the key had a value
+         * @param current the current value, or 0 if absent
+         * @return the new value
+         */
+        long remap(boolean present, long current);
+    }
+
+    /**
+     * Receives entries from {@link #forEach}
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(UUID key, long value);
+    }
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Offsets within a slot
+    private static final int MSB = 0;
+    private static final int LSB = 1;
+    private static final int VALUE = 2;
+    private static final int STATE = 3;
+
+    // Slot states
+    private static final long EMPTY = 0;
+    private static final long FULL = 1;
+    private static final long DELETED = 2;
+
+    private static final int DEFAULT_STRIPES = 16;
+    private static final int DEFAULT_STRIPE_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final int initialCapacity;
+
+    public UuidLongMap() {
+        this(DEFAULT_STRIPES, DEFAULT_STRIPE_CAPACITY);
+    }
+
+    /**
+     * @param stripes number of independently locked stripes, rounded up to a power of two
+     * @param initialCapacity initial slots per stripe, rounded up to a power of two
+     */
+    public UuidLongMap(int stripes, int initialCapacity) {
+        int stripeCount = powerOfTwo(Math.max(1, stripes));
+        this.initialCapacity = powerOfTwo(Math.max(4, initialCapacity));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(this.initialCapacity);
+        }
+        // Stripes are picked by the top bits of the hash, slots by the bottom bits
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * Get the value for a key, or the default if absent
+     */
+    public long get(UUID key, long defaultValue) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            long value = base >= 0 ? (long) SLOTS.getOpaque(slots, base + VALUE) : defaultValue;
+            if (stripe.lock.validate(stamp)) {
+                return value;
+            }
+        }
+
+        stamp = stripe.lock.readLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            return base >= 0 ? (long) SLOTS.getVolatile(slots, base + VALUE) : defaultValue;
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(UUID key) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = find(stripe.table.slots, msb, lsb, hash) >= 0;
+            if (stripe.lock.validate(stamp)) {
+                return found;
+            }
+        }
+
+        stamp = stripe.lock.readLock();
+        try {
+            return find(stripe.table.slots, msb, lsb, hash) >= 0;
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Set the value for a key
+     */
+    public void put(UUID key, long value) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.readLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base >= 0) {
+                SLOTS.setVolatile(slots, base + VALUE, value);
+                return;
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+
+        stamp = stripe.lock.writeLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base >= 0) {
+                slots[base + VALUE] = value;
+            } else {
+                stripe.insert(msb, lsb, hash, value);
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add to the value for a key, treating an absent key as 0
+     *
+     * @return the new value
+     */
+    public long addAndGet(UUID key, long delta) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.readLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base >= 0) {
+                return (long) SLOTS.getAndAdd(slots, base + VALUE, delta) + delta;
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+
+        stamp = stripe.lock.writeLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base >= 0) {
+                return slots[base + VALUE] += delta;
+            }
+            stripe.insert(msb, lsb, hash, delta);
+            return delta;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replace the value of an existing key if it currently equals the expected value
+     *
+     * @return false if the key is absent or holds a different value
+     */
+    public boolean compareAndSet(UUID key, long expected, long update) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.readLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            return base >= 0 && SLOTS.compareAndSet(slots, base + VALUE, expected, update);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Compute a new value while holding the key's stripe exclusively. The remapper may update
+     * other state that must change together with the value, but must not use this map.
+     *
+     * @return the new value
+     */
+    public long compute(UUID key, Remapper remapper) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.writeLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base >= 0) {
+                return slots[base + VALUE] = remapper.remap(true, slots[base + VALUE]);
+            }
+
+            long value = remapper.remap(false, 0);
+            stripe.insert(msb, lsb, hash, value);
+            return value;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Like {@link #compute}, but leaves absent keys absent
+     *
+     * @return true if the key was present
+     */
+    public boolean computeIfPresent(UUID key, LongUnaryOperator remapper) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.writeLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base < 0) {
+                return false;
+            }
+            slots[base + VALUE] = remapper.applyAsLong(slots[base + VALUE]);
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run an action while holding the key's stripe exclusively, so it cannot interleave with
+     * {@link #compute} or any update of that key
+     */
+    public void runLocked(UUID key, Runnable action) {
+        Stripe stripe = stripeFor(hash(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+        long stamp = stripe.lock.writeLock();
+        try {
+            action.run();
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a key
+     *
+     * @return true if it was present
+     */
+    public boolean remove(UUID key) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int hash = hash(msb, lsb);
+        Stripe stripe = stripeFor(hash);
+
+        long stamp = stripe.lock.writeLock();
+        try {
+            long[] slots = stripe.table.slots;
+            int base = find(slots, msb, lsb, hash);
+            if (base < 0) {
+                return false;
+            }
+            slots[base + STATE] = DELETED;
+            stripe.size--;
+            stripe.deleted++;
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Visit every entry. Each stripe is read under its read lock; entries changed while the
+     * walk is in progress may or may not be seen.
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                long[] slots = stripe.table.slots;
+                for (int base = 0; base < slots.length; base += 4) {
+                    if (slots[base + STATE] == FULL) {
+                        consumer.accept(new UUID(slots[base + MSB], slots[base + LSB]),
+                                (long) SLOTS.getVolatile(slots, base + VALUE));
+                    }
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.table = new Table(initialCapacity);
+                stripe.size = 0;
+                stripe.deleted = 0;
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes.length == 1 ? stripes[0] : stripes[hash >>> stripeShift];
+    }
+
+    /**
+     * Offset of the slot holding the key, or -1. Bounded by the table size so a racy
+     * optimistic read cannot loop forever.
+     */
+    private static int find(long[] slots, long msb, long lsb, int hash) {
+        int mask = (slots.length >> 2) - 1;
+        int slot = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int base = slot << 2;
+            long state = slots[base + STATE];
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == FULL && slots[base + MSB] == msb && slots[base + LSB] == lsb) {
+                return base;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        // Random UUIDs are already well mixed, but name-based and hand-made ones are not
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int powerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * A lock and the table it guards
+     */
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        volatile Table table;
+        // Only changed under the write lock
+        volatile int size;
+        int deleted;
+
+        Stripe(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        /**
+         * Insert a key known to be absent. Caller holds the write lock.
+         */
+        void insert(long msb, long lsb, int hash, long value) {
+            if (size + deleted + 1 > table.threshold) {
+                // Grow if mostly live entries, otherwise just sweep the tombstones
+                int capacity = table.capacity();
+                rehash(size + 1 > table.threshold / 2 ? capacity << 1 : capacity);
+            }
+
+            long[] slots = table.slots;
+            int mask = table.capacity() - 1;
+            int slot = hash & mask;
+            while (true) {
+                int base = slot << 2;
+                long state = slots[base + STATE];
+                if (state != FULL) {
+                    if (state == DELETED) {
+                        deleted--;
+                    }
+                    slots[base + MSB] = msb;
+                    slots[base + LSB] = lsb;
+                    slots[base + VALUE] = value;
+                    slots[base + STATE] = FULL;
+                    size++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] old = table.slots;
+            Table fresh = new Table(capacity);
+            int mask = capacity - 1;
+            for (int from = 0; from < old.length; from += 4) {
+                if (old[from + STATE] != FULL) {
+                    continue;
+                }
+                int slot = hash(old[from + MSB], old[from + LSB]) & mask;
+                while (fresh.slots[(slot << 2) + STATE] == FULL) {
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(old, from, fresh.slots, slot << 2, 4);
+            }
+            deleted = 0;
+            table = fresh;
+        }
+    }
+
+    /**
+     * Open-addressed slots. Each slot is four consecutive longs (key halves, value, state) so a
+     * probe usually touches a single cache line.
+     */
+    private static final class Table {
+        final long[] slots;
+        final int threshold;
+
+        Table(int capacity) {
+            this.slots = new long[capacity << 2];
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        int capacity() {
+            return slots.length >> 2;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.xshards;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Times the config reads AfkListener.onPlayerMove makes per event, once through YAML path
+ * lookups as before the settings snapshot and once through {@link Settings} fields.
+ *
+ * Every event checks whether WorldGuard is enabled. Events that cross a block also check the
+ * region before and after the move and the auto-start flag, like the handler does. The
+ * WorldGuard query itself is left out, since it is the same either way.
+ *
+ * {@link #main} runs it on the bundled config.yml from the test classpath; it is kept out of
+ * the plugin jar.
+ */
+public final class SettingsBenchmark {
+
+    private static final String WORLDGUARD_ENABLED = "earning.afk.worldguard.enabled";
+    private static final String WORLDGUARD_REGION = "earning.afk.worldguard.region";
+    private static final String WORLDGUARD_AUTO_START = "earning.afk.worldguard.auto-start";
+
+    private final FileConfiguration config;
+    // Volatile like the plugin's reference, so each event pays for the same read
+    private volatile Settings settings;
+    private final int events;
+
+    private double yamlNanos;
+    private double snapshotNanos;
+
+    // Keeps the JIT from discarding the timed loops
+    private long sink;
+
+    public static void main(String[] args) throws Exception {
+        FileConfiguration config;
+        try (Reader reader = new InputStreamReader(SettingsBenchmark.class.getResourceAsStream("/config.yml"),
+                StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        }
+
+        SettingsBenchmark result = new SettingsBenchmark(config, Settings.fromConfig(config), 1_000_000).run();
+        System.out.printf("Move event (%d events): settings snapshot %.1fns/event, YAML reads %.1fns/event%n",
+                result.getEvents(), result.getSnapshotNanos(), result.getYamlNanos());
+    }
+
+    /**
+     * @param events simulated move events per pass
+     */
+    public SettingsBenchmark(FileConfiguration config, Settings settings, int events) {
+        this.config = config;
+        this.settings = settings;
+        this.events = Math.max(1, events);
+    }
+
+    /**
+     * One warm-up pass of each, then a timed pass of each
+     */
+    public SettingsBenchmark run() {
+        // A walking player crosses a block about every eighth move event
+        SplittableRandom random = new SplittableRandom(42);
+        boolean[] crossesBlock = new boolean[events];
+        for (int i = 0; i < events; i++) {
+            crossesBlock[i] = random.nextInt(8) == 0;
+        }
+
+        runYaml(crossesBlock);
+        runSnapshot(crossesBlock);
+
+        long start = System.nanoTime();
+        runYaml(crossesBlock);
+        yamlNanos = (System.nanoTime() - start) / (double) events;
+
+        start = System.nanoTime();
+        runSnapshot(crossesBlock);
+        snapshotNanos = (System.nanoTime() - start) / (double) events;
+        return this;
+    }
+
+    private void runYaml(boolean[] crossesBlock) {
+        long total = 0;
+        for (boolean crosses : crossesBlock) {
+            if (config.getBoolean(WORLDGUARD_ENABLED, false)) {
+                total++;
+            }
+            if (crosses) {
+                for (int i = 0; i < 2; i++) {
+                    if (config.getBoolean(WORLDGUARD_ENABLED, false)) {
+                        total++;
+                    }
+                    total += config.getString(WORLDGUARD_REGION, "afk-zone").length();
+                }
+                if (config.getBoolean(WORLDGUARD_ENABLED, false) && config.getBoolean(WORLDGUARD_AUTO_START, true)) {
+                    total++;
+                }
+            }
+        }
+        sink += total;
+    }
+
+    private void runSnapshot(boolean[] crossesBlock) {
+        long total = 0;
+        for (boolean crosses : crossesBlock) {
+            Settings current = settings;
+            if (current.isWorldGuardEnabled()) {
+                total++;
+            }
+            if (crosses) {
+                for (int i = 0; i < 2; i++) {
+                    if (current.isWorldGuardEnabled()) {
+                        total++;
+                    }
+                    total += current.getWorldGuardRegion().length();
+                }
+                if (current.isWorldGuardEnabled() && current.isWorldGuardAutoStart()) {
+                    total++;
+                }
+            }
+        }
+        sink += total;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * Nanoseconds per move event reading config.yml paths
+     */
+    public double getYamlNanos() {
+        return yamlNanos;
+    }
+
+    /**
+     * Nanoseconds per move event reading the settings snapshot
+     */
+    public double getSnapshotNanos() {
+        return snapshotNanos;
+    }
+}
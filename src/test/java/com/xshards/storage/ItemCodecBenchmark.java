@@ -0,0 +1,152 @@
+package com.xshards.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the binary item codec with the legacy Java-serialization path on a full shop.
+ * Needs a running server, since ItemStack serialization depends on it, so call it from a
+ * test server; it is kept out of the plugin jar.
+ */
+public final class ItemCodecBenchmark {
+
+    public static final int SHOP_SLOTS = 54;
+
+    private final List<ItemStack> items;
+    private final int iterations;
+
+    private long legacyBytes;
+    private long codecBytes;
+    private double legacyEncodeMicros;
+    private double legacyDecodeMicros;
+    private double codecEncodeMicros;
+    private double codecDecodeMicros;
+    private String legacyError;
+
+    /**
+     * @param sample items to fill the shop with, repeated until all 54 slots are used
+     * @param iterations timed passes over the full shop
+     */
+    public ItemCodecBenchmark(List<ItemStack> sample, int iterations) {
+        this.items = new ArrayList<>(SHOP_SLOTS);
+        for (int i = 0; i < SHOP_SLOTS; i++) {
+            items.add(sample.get(i % sample.size()));
+        }
+        this.iterations = Math.max(1, iterations);
+    }
+
+    /**
+     * Run both paths: one warm-up pass set, then timed passes
+     */
+    public ItemCodecBenchmark run() throws IOException {
+        List<byte[]> codecBlobs = encodeAll(false);
+        codecBytes = totalSize(codecBlobs);
+
+        int warmup = Math.max(1, iterations / 5);
+        codecEncodeMicros = timeEncode(false, warmup);
+        codecDecodeMicros = timeDecode(codecBlobs, false, warmup);
+
+        try {
+            List<byte[]> legacyBlobs = encodeAll(true);
+            legacyBytes = totalSize(legacyBlobs);
+            legacyEncodeMicros = timeEncode(true, warmup);
+            legacyDecodeMicros = timeDecode(legacyBlobs, true, warmup);
+        } catch (IOException e) {
+            // Items whose meta is not java.io.Serializable cannot use the old path at all
+            legacyError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        return this;
+    }
+
+    private List<byte[]> encodeAll(boolean legacy) throws IOException {
+        List<byte[]> blobs = new ArrayList<>(items.size());
+        for (ItemStack item : items) {
+            blobs.add(legacy ? ItemStackCodec.encodeLegacy(item) : ItemStackCodec.encode(item));
+        }
+        return blobs;
+    }
+
+    private double timeEncode(boolean legacy, int warmup) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            encodeAll(legacy);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            encodeAll(legacy);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private double timeDecode(List<byte[]> blobs, boolean legacy, int warmup) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            decodeAll(blobs, legacy);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            decodeAll(blobs, legacy);
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    private void decodeAll(List<byte[]> blobs, boolean legacy) throws IOException {
+        for (byte[] blob : blobs) {
+            if (legacy) {
+                ItemStackCodec.decodeLegacy(blob);
+            } else {
+                ItemStackCodec.decode(blob);
+            }
+        }
+    }
+
+    private static long totalSize(List<byte[]> blobs) {
+        long total = 0;
+        for (byte[] blob : blobs) {
+            total += blob.length;
+        }
+        return total;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Total size of all 54 legacy blobs */
+    public long getLegacyBytes() {
+        return legacyBytes;
+    }
+
+    /** Total size of all 54 codec blobs */
+    public long getCodecBytes() {
+        return codecBytes;
+    }
+
+    /** Microseconds to encode the full shop with the legacy path */
+    public double getLegacyEncodeMicros() {
+        return legacyEncodeMicros;
+    }
+
+    /** Microseconds to decode the full shop with the legacy path */
+    public double getLegacyDecodeMicros() {
+        return legacyDecodeMicros;
+    }
+
+    /** Microseconds to encode the full shop with the codec */
+    public double getCodecEncodeMicros() {
+        return codecEncodeMicros;
+    }
+
+    /** Microseconds to decode the full shop with the codec */
+    public double getCodecDecodeMicros() {
+        return codecDecodeMicros;
+    }
+
+    /** Why the legacy path could not run, or null if it did */
+    public String getLegacyError() {
+        return legacyError;
+    }
+}
@@ -0,0 +1,149 @@
+package com.xshards.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares {@link UuidLongMap} with the ConcurrentHashMap&lt;UUID, Integer&gt; the shard cache
+ * used before, for balance lookups and additions at several cache sizes. Run {@link #main}
+ * from the test classpath; it is kept out of the plugin jar.
+ */
+public final class UuidLongMapBenchmark {
+
+    public static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+
+    private final int[] sizes;
+    private final int operations;
+    private final List<Result> results = new ArrayList<>();
+
+    // Keeps the JIT from discarding the timed loops
+    private long sink;
+
+    public static void main(String[] args) {
+        UuidLongMapBenchmark result = new UuidLongMapBenchmark(DEFAULT_SIZES, 1_000_000).run();
+        System.out.println("Shard cache (" + result.getOperations() + " operations)");
+        for (Result round : result.getResults()) {
+            System.out.printf("%d players: get %.1fns (boxed %.1fns), add %.1fns (boxed %.1fns)%n",
+                    round.getSize(), round.getPrimitiveGetNanos(), round.getBoxedGetNanos(),
+                    round.getPrimitiveAddNanos(), round.getBoxedAddNanos());
+        }
+    }
+
+    /**
+     * @param sizes number of cached players per round
+     * @param operations timed gets and adds per map and round
+     */
+    public UuidLongMapBenchmark(int[] sizes, int operations) {
+        this.sizes = sizes.clone();
+        this.operations = Math.max(1, operations);
+    }
+
+    /**
+     * Run every size: one warm-up pass, then a timed pass
+     */
+    public UuidLongMapBenchmark run() {
+        results.clear();
+        for (int size : sizes) {
+            runSize(size);
+            results.add(runSize(size));
+        }
+        return this;
+    }
+
+    private Result runSize(int size) {
+        SplittableRandom random = new SplittableRandom(size);
+        UUID[] keys = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        // Same access order for both maps
+        UUID[] order = new UUID[operations];
+        for (int i = 0; i < operations; i++) {
+            order[i] = keys[random.nextInt(size)];
+        }
+
+        Map<UUID, Integer> boxed = new ConcurrentHashMap<>();
+        UuidLongMap primitive = new UuidLongMap();
+        for (UUID key : keys) {
+            boxed.put(key, 100);
+            primitive.put(key, 100);
+        }
+
+        Result result = new Result(size);
+
+        long start = System.nanoTime();
+        long total = 0;
+        for (UUID key : order) {
+            total += boxed.getOrDefault(key, 0);
+        }
+        result.boxedGetNanos = (System.nanoTime() - start) / (double) operations;
+
+        start = System.nanoTime();
+        for (UUID key : order) {
+            total += primitive.get(key, 0);
+        }
+        result.primitiveGetNanos = (System.nanoTime() - start) / (double) operations;
+
+        start = System.nanoTime();
+        for (UUID key : order) {
+            boxed.merge(key, 1, Integer::sum);
+        }
+        result.boxedAddNanos = (System.nanoTime() - start) / (double) operations;
+
+        start = System.nanoTime();
+        for (UUID key : order) {
+            total += primitive.addAndGet(key, 1);
+        }
+        result.primitiveAddNanos = (System.nanoTime() - start) / (double) operations;
+
+        sink += total;
+        return result;
+    }
+
+    public int getOperations() {
+        return operations;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Timings for one cache size, in nanoseconds per operation
+     */
+    public static final class Result {
+        private final int size;
+        private double boxedGetNanos;
+        private double primitiveGetNanos;
+        private double boxedAddNanos;
+        private double primitiveAddNanos;
+
+        Result(int size) {
+            this.size = size;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getBoxedGetNanos() {
+            return boxedGetNanos;
+        }
+
+        public double getPrimitiveGetNanos() {
+            return primitiveGetNanos;
+        }
+
+        public double getBoxedAddNanos() {
+            return boxedAddNanos;
+        }
+
+        public double getPrimitiveAddNanos() {
+            return primitiveAddNanos;
+        }
+    }
+}